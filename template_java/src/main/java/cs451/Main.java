@@ -2,12 +2,15 @@ package cs451;
 
 import cs451.abstraction.FileLogger;
 import cs451.abstraction.Logger;
+import cs451.abstraction.broadcast.BroadcastConfiguration;
 import cs451.abstraction.broadcast.Broadcaster;
 import cs451.abstraction.broadcast.LocalizedCausalUniformReliableBroadcast;
+import cs451.abstraction.link.LinkConfiguration;
 import cs451.abstraction.link.message.RawPayloadFactory;
 import cs451.parser.Host;
 import cs451.parser.LocalizedCausalConfigParser;
 import cs451.parser.Parser;
+import cs451.parser.TuningParser;
 
 import java.util.List;
 import java.util.Set;
@@ -46,6 +49,10 @@ public class Main {
         Parser parser = new Parser(args);
         parser.parse(configParser);
 
+        LinkConfiguration linkConfiguration = new LinkConfiguration();
+        BroadcastConfiguration broadcastConfiguration = new BroadcastConfiguration();
+        new TuningParser(System.getProperties()).populate(linkConfiguration, broadcastConfiguration);
+
         initSignalHandlers();
 
         // example
@@ -74,14 +81,15 @@ public class Main {
         int numberOfMessagesToBroadcast = configParser.getNumberOfMessagesToBroadcast();
         Set<Integer> hostDependencies = configParser.getCausalRelationships().get(hostId);
         RawPayloadFactory rawPayloadFactory = new RawPayloadFactory();
-        initializeBroadcaster(hostId, allHosts, hostDependencies, rawPayloadFactory, outputPath);
+        initializeBroadcaster(hostId, allHosts, hostDependencies, rawPayloadFactory, outputPath, linkConfiguration,
+                broadcastConfiguration);
 
         System.out.println("Waiting for all processes to finish initialization");
         coordinator.waitOnBarrier();
 
         System.out.println("Broadcasting messages...");
         IntStream.range(0, numberOfMessagesToBroadcast).forEach(
-                messageNumber -> broadcaster.broadcast(rawPayloadFactory.create(null))
+                messageNumber -> broadcaster.broadcast(rawPayloadFactory.createEmpty())
         );
 
 	    System.out.println("Signaling end of broadcasting messages");
@@ -94,9 +102,12 @@ public class Main {
     }
 
     private static void initializeBroadcaster(int hostId, List<Host> allHosts, Set<Integer> hostDependencies,
-                                              RawPayloadFactory rawPayloadFactory, String outputPath) {
+                                              RawPayloadFactory rawPayloadFactory, String outputPath,
+                                              LinkConfiguration linkConfiguration,
+                                              BroadcastConfiguration broadcastConfiguration) {
         logger = new FileLogger(outputPath);
-        broadcaster = new LocalizedCausalUniformReliableBroadcast(hostId, allHosts, hostDependencies, rawPayloadFactory);
+        broadcaster = new LocalizedCausalUniformReliableBroadcast(hostId, allHosts, hostDependencies, rawPayloadFactory,
+                linkConfiguration, broadcastConfiguration);
         broadcaster.registerBroadcastObserver(logger);
         broadcaster.registerDeliveryObserver(logger);
     }
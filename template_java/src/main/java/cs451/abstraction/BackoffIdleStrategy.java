@@ -0,0 +1,74 @@
+package cs451.abstraction;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Idle strategy that first busy spins, then yields the processor and finally parks the thread for exponentially
+ * growing periods, up to a maximum which bounds the added latency if a signal is missed. Any work done resets it to
+ * spinning, so there is no extra latency under load while idle threads cost next to no CPU.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://github.com/real-logic/agrona/blob/master/agrona/src/main/java/org/agrona/concurrent/BackoffIdleStrategy.java">Agrona BackoffIdleStrategy</a></li>
+ *     <li><a href="https://www.baeldung.com/java-locksupport">Baeldung - LockSupport</a></li>
+ * </ul>
+ * </p>
+ */
+public class BackoffIdleStrategy implements IdleStrategy {
+
+    final private long maxSpins;
+    final private long maxYields;
+    final private long minParkPeriodNanos;
+    final private long maxParkPeriodNanos;
+
+    private long spins;
+    private long yields;
+    private long parkPeriodNanos;
+
+    private volatile Thread worker;
+    private volatile boolean isParked;
+
+    public BackoffIdleStrategy(long maxSpins, long maxYields, long minParkPeriodNanos, long maxParkPeriodNanos) {
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkPeriodNanos = minParkPeriodNanos;
+        this.maxParkPeriodNanos = maxParkPeriodNanos;
+        reset();
+    }
+
+    @Override
+    public void idle(int workCount) {
+        if (workCount > 0) {
+            reset();
+        } else if (spins < maxSpins) {
+            spins++;
+            Thread.onSpinWait();
+        } else if (yields < maxYields) {
+            yields++;
+            Thread.yield();
+        } else {
+            park();
+        }
+    }
+
+    private void park() {
+        worker = Thread.currentThread();
+        isParked = true;
+        LockSupport.parkNanos(this, parkPeriodNanos);
+        isParked = false;
+        parkPeriodNanos = Math.min(parkPeriodNanos * 2, maxParkPeriodNanos);
+    }
+
+    private void reset() {
+        spins = 0;
+        yields = 0;
+        parkPeriodNanos = minParkPeriodNanos;
+    }
+
+    @Override
+    public void signal() {
+        if (isParked) {
+            LockSupport.unpark(worker);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package cs451.abstraction;
+
+public interface FailureDetectionObserver {
+
+    default void notifyOfSuspicion(int hostId) {}
+
+    default void notifyOfRestoration(int hostId) {}
+
+    /**
+     * The host has stayed silent for another whole timeout since it became suspected, so it is most likely crashed.
+     * It may still be restored, if it is heard from again.
+     */
+    default void notifyOfAbandonment(int hostId) {}
+}
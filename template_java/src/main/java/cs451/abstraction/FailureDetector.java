@@ -0,0 +1,124 @@
+package cs451.abstraction;
+
+import cs451.parser.Host;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * <p>Eventually perfect failure detector based on heartbeats. Any traffic received from a host counts as its
+ * heartbeat, the link layer only sends explicit heartbeats to the hosts it has nothing else to send to. A host not
+ * heard from for longer than its timeout is suspected, and restored as soon as it is heard from again, which also
+ * doubles its timeout, so that a correct host is eventually never suspected.</p>
+ *
+ * <p>A host which stays silent for another whole timeout after it became suspected is abandoned: it is most likely
+ * crashed, so the link layer stops retransmitting to it on every retransmission timeout, but it still holds all the
+ * messages to it. An abandoned host heard from again is restored like a suspected one, and the link layer then
+ * retransmits them all, so that a host wrongly abandoned, e.g. one which was stopped for a while, misses nothing.
+ * Measuring the further timeout from the suspicion, rather than from the last message heard, keeps a host which was
+ * itself stopped, and finds all the others silent once resumed, from abandoning them before it catches up with the
+ * messages they sent in the meantime.</p>
+ *
+ * <p>The timeouts are checked and the observers notified by a single thread calling {@link #checkTimeouts(long)}, the
+ * other methods are thread-safe.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li>R. Guerraoui, L. Rodrigues - Introduction to Reliable Distributed Programming, Algorithm 2.7: Increasing
+ *     Timeout</li>
+ * </ul>
+ * </p>
+ */
+public class FailureDetector {
+
+    final private static int TRUSTED = 0;
+    final private static int SUSPECTED = 1;
+    final private static int ABANDONED = 2;
+
+    final private int hostId;
+    final private List<Host> otherHosts;
+    // indexed by host identifier
+    final private AtomicLongArray lastHeardNanos;
+    final private AtomicIntegerArray suspicionStates;
+    final private long[] timeoutsNanos;
+    // only accessed by the thread checking the timeouts
+    final private long[] suspectedSinceNanos;
+    final private List<FailureDetectionObserver> observers;
+
+    public FailureDetector(int hostId, List<Host> allHosts, long initialTimeoutNanos) {
+        this.hostId = hostId;
+        this.otherHosts = new LinkedList<>(allHosts);
+        otherHosts.removeIf(host -> host.getId() == hostId);
+
+        int maxHostId = allHosts.stream().mapToInt(Host::getId).max().orElse(0);
+        this.lastHeardNanos = new AtomicLongArray(maxHostId + 1);
+        this.suspicionStates = new AtomicIntegerArray(maxHostId + 1);
+        this.timeoutsNanos = new long[maxHostId + 1];
+        this.suspectedSinceNanos = new long[maxHostId + 1];
+        long nowNanos = System.nanoTime();
+        for (int id = 0; id <= maxHostId; id++) {
+            lastHeardNanos.set(id, nowNanos);
+            timeoutsNanos[id] = initialTimeoutNanos;
+        }
+        this.observers = new LinkedList<>();
+    }
+
+    public void registerObserver(FailureDetectionObserver observer) {
+        synchronized (observers) {
+            observers.add(observer);
+        }
+    }
+
+    public void recordHeardFrom(int hostId, long receiveTimeNanos) {
+        lastHeardNanos.lazySet(hostId, receiveTimeNanos);
+    }
+
+    /**
+     * @return true if the host is suspected, abandoned hosts included
+     */
+    public boolean isSuspected(int hostId) {
+        return hostId != this.hostId && suspicionStates.get(hostId) != TRUSTED;
+    }
+
+    public boolean isAbandoned(int hostId) {
+        return hostId != this.hostId && suspicionStates.get(hostId) == ABANDONED;
+    }
+
+    /**
+     * @return number of hosts which became suspected, were abandoned or were restored
+     */
+    public int checkTimeouts(long nowNanos) {
+        int numberOfChanges = 0;
+        for (Host host : otherHosts) {
+            int id = host.getId();
+            boolean isSilent = nowNanos - lastHeardNanos.get(id) > timeoutsNanos[id];
+            int state = suspicionStates.get(id);
+
+            if (isSilent && state == TRUSTED) {
+                suspicionStates.set(id, SUSPECTED);
+                suspectedSinceNanos[id] = nowNanos;
+                notifyObservers(observer -> observer.notifyOfSuspicion(id));
+                numberOfChanges++;
+            } else if (isSilent && state == SUSPECTED && nowNanos - suspectedSinceNanos[id] > timeoutsNanos[id]) {
+                suspicionStates.set(id, ABANDONED);
+                notifyObservers(observer -> observer.notifyOfAbandonment(id));
+                numberOfChanges++;
+            } else if (!isSilent && state != TRUSTED) {
+                suspicionStates.set(id, TRUSTED);
+                timeoutsNanos[id] *= 2;
+                notifyObservers(observer -> observer.notifyOfRestoration(id));
+                numberOfChanges++;
+            }
+        }
+        return numberOfChanges;
+    }
+
+    private void notifyObservers(Consumer<FailureDetectionObserver> notification) {
+        synchronized (observers) {
+            observers.forEach(notification);
+        }
+    }
+}
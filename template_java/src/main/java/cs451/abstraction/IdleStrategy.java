@@ -0,0 +1,17 @@
+package cs451.abstraction;
+
+/**
+ * <p>Decides what a worker thread does when its loop iteration found nothing to do.</p>
+ */
+public interface IdleStrategy {
+
+    /**
+     * @param workCount amount of work done in the last loop iteration, the strategy backs off only if it is zero
+     */
+    void idle(int workCount);
+
+    /**
+     * Wakes up the worker thread if it is currently parked, called by the producers of new work.
+     */
+    void signal();
+}
@@ -0,0 +1,165 @@
+package cs451.abstraction;
+
+/**
+ * <p>Hash map with primitive <code>long</code> keys using open addressing with linear probing, so that neither the
+ * keys nor the entries are boxed or allocated on insertion. Removal shifts the following entries of the probe
+ * sequence back instead of leaving tombstones. Values must not be null. Not thread-safe.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://en.wikipedia.org/wiki/Linear_probing">Linear probing</a></li>
+ *     <li><a href="https://en.wikipedia.org/wiki/Hash_function#Fibonacci_hashing">Fibonacci hashing</a></li>
+ *     <li><a href="https://github.com/real-logic/agrona/blob/master/agrona/src/main/java/org/agrona/collections/Long2ObjectHashMap.java">Agrona Long2ObjectHashMap</a></li>
+ * </ul>
+ * </p>
+ */
+public class LongHashMap<V> {
+
+    final private static int INITIAL_CAPACITY = 16;
+    final private static long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public LongHashMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * FIBONACCI_MULTIPLIER;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private int indexOf(long key) {
+        int index = slotOf(key);
+        while (values[index] != null) {
+            if (keys[index] == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the previous value of the key, null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException("Null values are not supported");
+
+        int index = slotOf(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        // keeps the load factor at most one half
+        if (2 * size > keys.length) rehash();
+        return null;
+    }
+
+    /**
+     * @return the removed value, null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) return null;
+
+        V removed = (V) values[index];
+        values[index] = null;
+        size--;
+        shiftBackFollowingEntries(index);
+        return removed;
+    }
+
+    private void shiftBackFollowingEntries(int freedIndex) {
+        int index = freedIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) return;
+
+            int slot = slotOf(keys[index]);
+            // the entry may move to the freed index only if its own slot does not lie cyclically in (freed, index]
+            boolean isSlotBetween = freedIndex <= index
+                    ? freedIndex < slot && slot <= index
+                    : freedIndex < slot || slot <= index;
+            if (!isSlotBetween) {
+                keys[freedIndex] = keys[index];
+                values[freedIndex] = values[index];
+                values[index] = null;
+                freedIndex = index;
+            }
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int index = 0; index < oldKeys.length; index++) {
+            if (oldValues[index] != null) {
+                reinsert(oldKeys[index], oldValues[index]);
+            }
+        }
+    }
+
+    private void reinsert(long key, Object value) {
+        int index = slotOf(key);
+        while (values[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * The map must not be modified by the action.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> action) {
+        for (int index = 0; index < keys.length; index++) {
+            if (values[index] != null) {
+                action.accept(keys[index], (V) values[index]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
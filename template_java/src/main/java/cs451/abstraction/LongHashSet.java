@@ -0,0 +1,51 @@
+package cs451.abstraction;
+
+import java.util.function.LongConsumer;
+
+/**
+ * <p>Set of primitive <code>long</code> values backed by a {@link LongHashMap}, as {@link java.util.HashSet} is
+ * backed by a {@link java.util.HashMap}. Not thread-safe.</p>
+ */
+public class LongHashSet {
+
+    final private static Object PRESENT = new Object();
+
+    final private LongHashMap<Object> map;
+
+    public LongHashSet() {
+        this.map = new LongHashMap<>();
+    }
+
+    /**
+     * @return true if the value was not yet in the set
+     */
+    public boolean add(long value) {
+        return map.put(value, PRESENT) == null;
+    }
+
+    public boolean contains(long value) {
+        return map.containsKey(value);
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        return map.remove(value) != null;
+    }
+
+    /**
+     * The set must not be modified by the action.
+     */
+    public void forEach(LongConsumer action) {
+        map.forEach((value, present) -> action.accept(value));
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+}
@@ -1,11 +1,17 @@
 package cs451.abstraction.broadcast;
 
+import cs451.abstraction.FailureDetector;
 import cs451.abstraction.link.HostResolver;
+import cs451.abstraction.link.LinkConfiguration;
 import cs451.abstraction.link.PerfectLink;
+import cs451.abstraction.link.message.DatagramData;
+import cs451.abstraction.link.message.DatagramDataType;
+import cs451.abstraction.link.message.EncodedPayload;
 import cs451.abstraction.link.message.Message;
 import cs451.abstraction.link.message.MessageFactory;
 import cs451.abstraction.link.message.Payload;
 import cs451.abstraction.link.message.PayloadFactory;
+import cs451.abstraction.link.message.SeenPayload;
 import cs451.parser.Host;
 
 import java.util.LinkedList;
@@ -18,7 +24,8 @@ public class BestEffortBroadcast extends Broadcaster {
     final private MessageFactory messageFactory;
     final private PerfectLink perfectLink;
 
-    public BestEffortBroadcast(int hostId, List<Host> allHosts, PayloadFactory payloadFactory) {
+    public BestEffortBroadcast(int hostId, List<Host> allHosts, PayloadFactory payloadFactory,
+                               LinkConfiguration configuration) {
         super();
         HostResolver hostResolver = new HostResolver(allHosts);
         Host host = hostResolver.getHostById(hostId);
@@ -27,7 +34,7 @@ public class BestEffortBroadcast extends Broadcaster {
         this.otherHosts = createListOfOtherHosts(host, allHosts);
         this.messageFactory = new MessageFactory(hostResolver);
 
-        this.perfectLink = new PerfectLink(host, allHosts, payloadFactory, messageFactory); // FIXME can reuse factory?
+        this.perfectLink = new PerfectLink(host, allHosts, payloadFactory, messageFactory, configuration); // FIXME can reuse factory?
         perfectLink.registerDeliveryObserver(this);
         perfectLink.startThreads();
     }
@@ -38,6 +45,10 @@ public class BestEffortBroadcast extends Broadcaster {
         return hosts;
     }
 
+    public FailureDetector getFailureDetector() {
+        return perfectLink.getFailureDetector();
+    }
+
     @Override
     public void broadcast(Payload payload) {
         broadcast(payload, false);
@@ -49,9 +60,34 @@ public class BestEffortBroadcast extends Broadcaster {
         sendToMyself(payload); // simply delivers the message to the broadcasting host
     }
 
+    /**
+     * Relays the payload only to the given hosts, as opposed to {@link #broadcast(Payload, boolean)}.
+     */
+    public void relay(Payload payload, List<Host> receivers) {
+        sendTo(receivers, payload, true);
+        sendToMyself(payload);
+    }
+
+    /**
+     * Sends the summary of the messages seen by this host to the host, unsequenced, so that it supersedes the summary
+     * of the same origin not sent yet to that host.
+     */
+    public void sendSeenSummary(SeenPayload summary, int receiverId) {
+        DatagramData data = new DatagramData(hostId, receiverId, DatagramDataType.SEEN, summary);
+        perfectLink.sendUnsequenced(summary.getOriginalSenderId(), messageFactory.createToSend(data));
+    }
+
     private void sendToOtherHosts(Payload payload, boolean isBroadcastThroughQueue) {
-        otherHosts.forEach(receiver -> {
-            Message message = messageFactory.createMessageWithPayload(hostId, receiver.getId(), payload);
+        sendTo(otherHosts, payload, isBroadcastThroughQueue);
+    }
+
+    /**
+     * The payload is encoded once and shared by the messages to all the receivers.
+     */
+    private void sendTo(List<Host> receivers, Payload payload, boolean isBroadcastThroughQueue) {
+        EncodedPayload encodedPayload = EncodedPayload.of(payload);
+        receivers.forEach(receiver -> {
+            Message message = messageFactory.createMessageWithPayload(hostId, receiver.getId(), encodedPayload);
             if (!isBroadcastThroughQueue) perfectLink.send(message);
             else perfectLink.queueForSending(message); // to keep sending in one thread
         });
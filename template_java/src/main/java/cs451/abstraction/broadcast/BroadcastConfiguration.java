@@ -0,0 +1,101 @@
+package cs451.abstraction.broadcast;
+
+import java.time.Duration;
+
+/**
+ * <p>Tunable parameters of the {@link UniformReliableBroadcast} and of the broadcast abstractions built on top of it.
+ * The parameters of the link layer below are kept apart, in {@link cs451.abstraction.link.LinkConfiguration}.</p>
+ */
+public class BroadcastConfiguration {
+
+    // relays around any single crashed host in the ring
+    final private static int DEFAULT_RELAY_FANOUT = 2;
+
+    // the cores left over by the sending, receiving and triaging threads of the link
+    final private static int DEFAULT_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 3);
+
+    // amortizes the summaries over the messages received in the meantime
+    final private static Duration DEFAULT_SEEN_SUMMARY_INTERVAL = Duration.ofMillis(1);
+    // recovers lost summaries well before the failure detector would suspect anybody
+    final private static Duration DEFAULT_SEEN_SUMMARY_PROBE_INTERVAL = Duration.ofMillis(20);
+
+    private RelayMode relayMode;
+    private int relayFanout;
+    private QuorumMode quorumMode;
+    private int workers;
+    private Duration seenSummaryInterval;
+    private Duration seenSummaryProbeInterval;
+
+    public BroadcastConfiguration() {
+        this.relayMode = RelayMode.ALL_HOSTS;
+        this.relayFanout = DEFAULT_RELAY_FANOUT;
+        this.quorumMode = QuorumMode.MAJORITY;
+        this.workers = DEFAULT_WORKERS;
+        this.seenSummaryInterval = DEFAULT_SEEN_SUMMARY_INTERVAL;
+        this.seenSummaryProbeInterval = DEFAULT_SEEN_SUMMARY_PROBE_INTERVAL;
+    }
+
+    public RelayMode getRelayMode() {
+        return relayMode;
+    }
+
+    public void setRelayMode(RelayMode relayMode) {
+        this.relayMode = relayMode;
+    }
+
+    /**
+     * Number of successors in the ring each message is relayed to with {@link RelayMode#RING_SUCCESSORS}. Uniform
+     * agreement holds as long as fewer than this many consecutive hosts in the ring crash.
+     */
+    public int getRelayFanout() {
+        return relayFanout;
+    }
+
+    public void setRelayFanout(int relayFanout) {
+        this.relayFanout = relayFanout;
+    }
+
+    public QuorumMode getQuorumMode() {
+        return quorumMode;
+    }
+
+    public void setQuorumMode(QuorumMode quorumMode) {
+        this.quorumMode = quorumMode;
+    }
+
+    /**
+     * Number of worker threads the state of the uniform reliable broadcast is partitioned into by the origin of the
+     * messages, at most one per host.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Shortest period between two summaries of an origin sent to the other hosts, which are sent only once the messages
+     * received or delivered from that origin changed.
+     */
+    public Duration getSeenSummaryInterval() {
+        return seenSummaryInterval;
+    }
+
+    public void setSeenSummaryInterval(Duration seenSummaryInterval) {
+        this.seenSummaryInterval = seenSummaryInterval;
+    }
+
+    /**
+     * Period of the probes re-sending the latest summary of an origin to a host which may still need it, as summaries
+     * are not retransmitted by the link layer.
+     */
+    public Duration getSeenSummaryProbeInterval() {
+        return seenSummaryProbeInterval;
+    }
+
+    public void setSeenSummaryProbeInterval(Duration seenSummaryProbeInterval) {
+        this.seenSummaryProbeInterval = seenSummaryProbeInterval;
+    }
+}
@@ -1,6 +1,7 @@
 package cs451.abstraction.broadcast;
 
 import cs451.abstraction.link.HostResolver;
+import cs451.abstraction.link.LinkConfiguration;
 import cs451.abstraction.link.message.*;
 import cs451.parser.Host;
 
@@ -27,7 +28,9 @@ public class FIFOUniformReliableBroadcast extends Broadcaster {
     final private FIFOPayloadFactory fifoPayloadFactory;
     final private UniformReliableBroadcast uniformReliableBroadcast;
 
-    public FIFOUniformReliableBroadcast(int hostId, List<Host> allHosts, PayloadFactory rawDataPayloadFactory) {
+    public FIFOUniformReliableBroadcast(int hostId, List<Host> allHosts, PayloadFactory rawDataPayloadFactory,
+                                        LinkConfiguration linkConfiguration,
+                                        BroadcastConfiguration configuration) {
         this.hostId = hostId;
         this.lastSequenceNumber = 0;
         this.pendingQueues = initializePendingQueues(allHosts);
@@ -35,7 +38,8 @@ public class FIFOUniformReliableBroadcast extends Broadcaster {
 
         this.messageFactory = new MessageFactory(new HostResolver(allHosts));
         this.fifoPayloadFactory = new FIFOPayloadFactory(rawDataPayloadFactory);
-        this.uniformReliableBroadcast = new UniformReliableBroadcast(hostId, allHosts, fifoPayloadFactory);
+        this.uniformReliableBroadcast = new UniformReliableBroadcast(hostId, allHosts, fifoPayloadFactory,
+                linkConfiguration, configuration);
         uniformReliableBroadcast.registerBroadcastObserver(this);
         uniformReliableBroadcast.registerDeliveryObserver(this);
     }
@@ -72,19 +76,20 @@ public class FIFOUniformReliableBroadcast extends Broadcaster {
             return;
         }
 
-        pendingQueues.forEach((hostId, queue) -> {
-            int nextToDeliverSequenceNumber = nextToDeliverForProcesses.get(hostId);
-            while (canDeliverFrontOfQueue(queue, nextToDeliverSequenceNumber)) {
-                try {
-                    FIFOPayload payload = queue.take();
-                    emitDeliverEvent(createDeliveredMessageFromPayload(payload));
-                    nextToDeliverSequenceNumber++;
-                } catch (InterruptedException exc) {
-                    return;
-                }
+        // only the queue of the origin may have become deliverable, the origin is always delivered from the same thread
+        int senderHostId = message.getData().getSenderHostId();
+        BlockingQueue<FIFOPayload> queue = pendingQueues.get(senderHostId);
+        int nextToDeliverSequenceNumber = nextToDeliverForProcesses.get(senderHostId);
+        while (canDeliverFrontOfQueue(queue, nextToDeliverSequenceNumber)) {
+            try {
+                FIFOPayload payload = queue.take();
+                emitDeliverEvent(createDeliveredMessageFromPayload(payload));
+                nextToDeliverSequenceNumber++;
+            } catch (InterruptedException exc) {
+                return;
             }
-            nextToDeliverForProcesses.replace(hostId, nextToDeliverSequenceNumber);
-        });
+        }
+        nextToDeliverForProcesses.replace(senderHostId, nextToDeliverSequenceNumber);
     }
 
     private void addToPending(Message message) throws InterruptedException {
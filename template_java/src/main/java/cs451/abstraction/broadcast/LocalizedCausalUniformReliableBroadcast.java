@@ -1,7 +1,9 @@
 package cs451.abstraction.broadcast;
 
+import cs451.abstraction.IdleStrategy;
 import cs451.abstraction.ProcessVectorClock;
 import cs451.abstraction.link.HostResolver;
+import cs451.abstraction.link.LinkConfiguration;
 import cs451.abstraction.link.message.*;
 import cs451.parser.Host;
 
@@ -9,6 +11,7 @@ import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
 
@@ -18,6 +21,7 @@ public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
     private int lastSequenceNumber;
 
     final private Map<Integer, BlockingQueue<LocalizedCausalPayload>> pendingQueues;
+    final private IdleStrategy deliveryIdleStrategy;
     final private Thread deliveryThread;
 
     final private MessageFactory messageFactory;
@@ -25,7 +29,9 @@ public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
     final private UniformReliableBroadcast uniformReliableBroadcast;
 
     public LocalizedCausalUniformReliableBroadcast(int hostId, List<Host> allHosts, Set<Integer> hostDependencies,
-                                                   PayloadFactory rawDataPayloadFactory) {
+                                                   PayloadFactory rawDataPayloadFactory,
+                                                   LinkConfiguration linkConfiguration,
+                                                   BroadcastConfiguration configuration) {
         int numberOfProcesses = allHosts.size();
         this.hostId = hostId;
         vectorClock = new ProcessVectorClock(hostId, numberOfProcesses);
@@ -33,11 +39,13 @@ public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
         lastSequenceNumber = 0;
 
         pendingQueues = initializePendingQueues(allHosts);
+        deliveryIdleStrategy = linkConfiguration.createIdleStrategy();
         deliveryThread = startDeliveryThread();
 
         messageFactory = new MessageFactory(new HostResolver(allHosts));
         localizedCausalPayloadFactory = new LocalizedCausalPayloadFactory(numberOfProcesses, rawDataPayloadFactory);
-        uniformReliableBroadcast = new UniformReliableBroadcast(hostId, allHosts, localizedCausalPayloadFactory);
+        uniformReliableBroadcast = new UniformReliableBroadcast(hostId, allHosts, localizedCausalPayloadFactory,
+                linkConfiguration, configuration);
         uniformReliableBroadcast.registerBroadcastObserver(this);
         uniformReliableBroadcast.registerDeliveryObserver(this);
     }
@@ -70,6 +78,7 @@ public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
         Payload payload = message.getPayload();
         int senderId = payload.getOriginalSenderId();
         pendingQueues.get(senderId).add((LocalizedCausalPayload) payload);
+        deliveryIdleStrategy.signal();
     }
 
     private Thread startDeliveryThread() {
@@ -80,22 +89,28 @@ public class LocalizedCausalUniformReliableBroadcast extends Broadcaster {
 
     private void runDelivery() {
         while (!Thread.interrupted()) {
-            processDeliveries();
+            deliveryIdleStrategy.idle(processDeliveries());
         }
     }
 
-    private void processDeliveries() {
+    /**
+     * @return number of delivered messages
+     */
+    private int processDeliveries() {
+        AtomicInteger numberOfDelivered = new AtomicInteger(0);
         pendingQueues.forEach((hostId, queue) -> {
             while (canDeliverFrontOfQueue(queue)) {
                 synchronized (vectorClock) {
                     try {
                         deliver(queue.take());
+                        numberOfDelivered.incrementAndGet();
                     } catch (InterruptedException exc) {
                         return;
                     }
                 }
             }
         });
+        return numberOfDelivered.get();
     }
 
     private boolean canDeliverFrontOfQueue(Queue<LocalizedCausalPayload> queue) {
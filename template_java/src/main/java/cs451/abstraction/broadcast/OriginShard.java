@@ -0,0 +1,361 @@
+package cs451.abstraction.broadcast;
+
+import cs451.abstraction.FailureDetector;
+import cs451.abstraction.IdleStrategy;
+import cs451.abstraction.LongHashMap;
+import cs451.abstraction.LongHashSet;
+import cs451.abstraction.link.LinkConfiguration;
+import cs451.abstraction.link.ReceivedSequenceTracker;
+import cs451.abstraction.link.message.AcknowledgmentPayload;
+import cs451.abstraction.link.message.MessageId;
+import cs451.abstraction.link.message.Payload;
+import cs451.abstraction.link.message.SeenPayload;
+import cs451.parser.Host;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * <p>The {@link UniformReliableBroadcast} state of the messages of the origins assigned to a single worker thread,
+ * which is the only one to access it, so it needs no locks. The other threads hand their work over as tasks through a
+ * queue, executed by the worker in the order of submission, so that e.g. an own broadcast is recorded before its
+ * relays coming back from the network.</p>
+ *
+ * <p>The messages are delivered by the worker thread, so all the messages of an origin are delivered by the same
+ * thread, one at a time.</p>
+ *
+ * <p>The {@link SeenPayload summaries} of an origin are sent to the other hosts only when the messages received or
+ * delivered from it changed, and are not retransmitted by the link layer. A lost summary is recovered by probing: a
+ * host which has not reported having delivered all the messages received here, and has reported nothing about the
+ * origin for a whole probe interval, is sent the latest summary again as a probe, to which it replies with its own.
+ * Once every host has delivered everything, the summaries stop.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://mechanical-sympathy.blogspot.com/2011/09/single-writer-principle.html">Mechanical
+ *     Sympathy - Single Writer Principle</a></li>
+ * </ul>
+ * </p>
+ */
+class OriginShard {
+
+    final private static AcknowledgmentPayload NOTHING_DELIVERED = new AcknowledgmentPayload(0, new long[0]);
+
+    final private int hostId;
+    final private RelayMode relayMode;
+    final private List<Host> otherHosts;
+    final private List<Host> relaySuccessors;
+    final private BestEffortBroadcast bestEffortBroadcast;
+    final private FailureDetector failureDetector;
+    final private Consumer<Payload> deliveryListener;
+
+    final private List<Integer> originIds;
+    // indexed by origin host identifier, only the origins of this shard are tracked
+    final private ReceivedSequenceTracker[] receivedFromOrigins;
+    final private ReceivedSequenceTracker[] deliveredFromOrigins;
+    // received but not delivered yet
+    final private LongHashMap<Payload> pending;
+    final private QuorumTracker quorumTracker;
+    // own origin messages broadcast but not seen by a quorum yet
+    final private LongHashSet doneBroadcast;
+    // own origin messages seen by a quorum but not broadcast to all the hosts yet
+    final private LongHashSet awaitingBroadcast;
+    // seen by a quorum of hosts according to their summaries, but not received by this host yet
+    final private LongHashSet seenByQuorumNotReceived;
+    final private Queue<Payload> readyToDeliver;
+    // indexed by origin host identifier, whether a message was received or delivered since the previous summary
+    final private boolean[] isSeenSummaryDue;
+    // indexed by reporting and origin host identifiers, the cumulative sequence number already recorded in the quorum
+    final private int[][] recordedSeenUpTo;
+    // indexed by reporting and origin host identifiers, the latest reported delivered messages
+    final private AcknowledgmentPayload[][] reportedDelivered;
+    // indexed by reporting and origin host identifiers, whether a summary arrived since the previous probe
+    final private boolean[][] hasReportedSinceProbe;
+    final private long seenSummaryIntervalNanos;
+    final private long seenSummaryProbeIntervalNanos;
+    private long lastSeenSummaryTimeNanos;
+    private long lastSeenSummaryProbeTimeNanos;
+
+    final private Queue<Runnable> tasks;
+    final private IdleStrategy idleStrategy;
+    private Thread workerThread;
+
+    OriginShard(int hostId, List<Host> allHosts, List<Integer> originIds, List<Host> relaySuccessors,
+                BestEffortBroadcast bestEffortBroadcast, Consumer<Payload> deliveryListener,
+                LinkConfiguration linkConfiguration, BroadcastConfiguration configuration) {
+        this.hostId = hostId;
+        this.relayMode = configuration.getRelayMode();
+        this.otherHosts = new ArrayList<>(allHosts);
+        otherHosts.removeIf(host -> host.getId() == hostId);
+        this.relaySuccessors = relaySuccessors;
+        this.bestEffortBroadcast = bestEffortBroadcast;
+        this.failureDetector = bestEffortBroadcast.getFailureDetector();
+        this.deliveryListener = deliveryListener;
+
+        int maxHostId = allHosts.stream().mapToInt(Host::getId).max().orElse(0);
+        this.originIds = originIds;
+        this.receivedFromOrigins = new ReceivedSequenceTracker[maxHostId + 1];
+        this.deliveredFromOrigins = new ReceivedSequenceTracker[maxHostId + 1];
+        originIds.forEach(originId -> {
+            receivedFromOrigins[originId] = new ReceivedSequenceTracker();
+            deliveredFromOrigins[originId] = new ReceivedSequenceTracker();
+        });
+        this.pending = new LongHashMap<>();
+        this.quorumTracker = new QuorumTracker(configuration.getQuorumMode(), allHosts, this::onSeenByQuorum);
+        this.doneBroadcast = new LongHashSet();
+        this.awaitingBroadcast = new LongHashSet();
+        this.seenByQuorumNotReceived = new LongHashSet();
+        this.readyToDeliver = new ArrayDeque<>();
+        this.isSeenSummaryDue = new boolean[maxHostId + 1];
+        this.recordedSeenUpTo = new int[maxHostId + 1][maxHostId + 1];
+        this.reportedDelivered = new AcknowledgmentPayload[maxHostId + 1][maxHostId + 1];
+        for (AcknowledgmentPayload[] reportedByHost : reportedDelivered) {
+            Arrays.fill(reportedByHost, NOTHING_DELIVERED);
+        }
+        this.hasReportedSinceProbe = new boolean[maxHostId + 1][maxHostId + 1];
+        this.seenSummaryIntervalNanos = configuration.getSeenSummaryInterval().toNanos();
+        this.seenSummaryProbeIntervalNanos = configuration.getSeenSummaryProbeInterval().toNanos();
+        this.lastSeenSummaryTimeNanos = System.nanoTime();
+        this.lastSeenSummaryProbeTimeNanos = lastSeenSummaryTimeNanos;
+
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.idleStrategy = linkConfiguration.createIdleStrategy();
+    }
+
+    /**
+     * To be called before the own broadcast of the payload is sent to the other hosts.
+     */
+    void startOwnBroadcast(Payload payload) {
+        submit(() -> {
+            recordReceived(payload);
+            pending.put(payload.getMessageId(), payload);
+        });
+    }
+
+    /**
+     * To be called once the own broadcast of the payload was sent to all the other hosts.
+     */
+    void finishOwnBroadcast(long messageId) {
+        submit(() -> {
+            if (awaitingBroadcast.remove(messageId)) {
+                markReadyToDeliver(messageId);
+            } else {
+                doneBroadcast.add(messageId);
+            }
+        });
+    }
+
+    void receive(Payload payload, int senderId) {
+        submit(() -> onReceived(payload, senderId));
+    }
+
+    void receiveSeenSummary(int reportingHostId, SeenPayload seen) {
+        submit(() -> recordSeenSummary(reportingHostId, seen));
+    }
+
+    void excludeHost(int hostId) {
+        submit(() -> quorumTracker.excludeHost(hostId));
+    }
+
+    void includeHost(int hostId) {
+        submit(() -> quorumTracker.includeHost(hostId));
+    }
+
+    private void submit(Runnable task) {
+        tasks.add(task);
+        idleStrategy.signal();
+    }
+
+    /**
+     * @return true if the message was received for the first time
+     */
+    private boolean recordReceived(Payload payload) {
+        return receivedFromOrigins[payload.getOriginalSenderId()].record(payload.getSequenceNumber());
+    }
+
+    private void onReceived(Payload payload, int senderId) {
+        long messageId = payload.getMessageId();
+        int originId = payload.getOriginalSenderId();
+
+        if (recordReceived(payload)) {
+            pending.put(messageId, payload);
+            isSeenSummaryDue[originId] = true;
+            if (seenByQuorumNotReceived.remove(messageId)) markReadyToDeliver(messageId);
+            bestEffortBroadcast.relay(payload, selectRelayReceivers(payload, senderId));
+        }
+        quorumTracker.recordSeen(messageId, senderId);
+    }
+
+    /**
+     * The hosts known to have the message already are skipped, they learn that this host has seen it from its
+     * summaries.
+     */
+    private List<Host> selectRelayReceivers(Payload payload, int senderId) {
+        int originId = payload.getOriginalSenderId();
+        int sequenceNumber = payload.getSequenceNumber();
+        List<Host> receivers = new ArrayList<>(relayMode.equals(RelayMode.ALL_HOSTS) ? otherHosts : relaySuccessors);
+        receivers.removeIf(host -> host.getId() == originId || host.getId() == senderId
+                || recordedSeenUpTo[host.getId()][originId] >= sequenceNumber);
+        return receivers;
+    }
+
+    /**
+     * Records the reporting host in the quorum of every message covered by its summary. The messages up to the
+     * cumulative sequence number recorded from a previous summary are skipped. As summaries may arrive reordered, an
+     * older delivered summary does not replace a newer one.
+     */
+    private void recordSeenSummary(int reportingHostId, SeenPayload seen) {
+        int originId = seen.getOriginalSenderId();
+        AcknowledgmentPayload summary = seen.getReceived();
+
+        int cumulativeSequenceNumber = summary.getCumulativeSequenceNumber();
+        for (int sequenceNumber = recordedSeenUpTo[reportingHostId][originId] + 1;
+             sequenceNumber <= cumulativeSequenceNumber; sequenceNumber++) {
+            quorumTracker.recordSeen(MessageId.of(originId, sequenceNumber), reportingHostId);
+        }
+        recordedSeenUpTo[reportingHostId][originId] =
+                Math.max(recordedSeenUpTo[reportingHostId][originId], cumulativeSequenceNumber);
+
+        summary.forEachSelectivelyAcknowledged(sequenceNumber ->
+                quorumTracker.recordSeen(MessageId.of(originId, sequenceNumber), reportingHostId)
+        );
+
+        AcknowledgmentPayload delivered = seen.getDelivered();
+        if (delivered.getCumulativeSequenceNumber()
+                >= reportedDelivered[reportingHostId][originId].getCumulativeSequenceNumber()) {
+            reportedDelivered[reportingHostId][originId] = delivered;
+        }
+        hasReportedSinceProbe[reportingHostId][originId] = true;
+        if (seen.isProbe()) {
+            bestEffortBroadcast.sendSeenSummary(createSeenSummary(originId, false), reportingHostId);
+        }
+    }
+
+    /**
+     * Called by the {@link QuorumTracker}, once per message. Own origin messages should not be delivered through the
+     * relayed broadcast from the network before their own broadcast is done.
+     */
+    private void onSeenByQuorum(long messageId) {
+        boolean isOfOwnOrigin = MessageId.getHostId(messageId) == hostId;
+        if (!pending.containsKey(messageId)) {
+            seenByQuorumNotReceived.add(messageId);
+        } else if (isOfOwnOrigin && !doneBroadcast.remove(messageId)) {
+            awaitingBroadcast.add(messageId);
+        } else {
+            markReadyToDeliver(messageId);
+        }
+    }
+
+    private void markReadyToDeliver(long messageId) {
+        int originId = MessageId.getHostId(messageId);
+        quorumTracker.release(messageId);
+        readyToDeliver.add(pending.remove(messageId));
+        deliveredFromOrigins[originId].record(MessageId.getSequenceNumber(messageId));
+        isSeenSummaryDue[originId] = true;
+    }
+
+    void start() {
+        workerThread = new Thread(this::run);
+        workerThread.start();
+    }
+
+    void stop() {
+        workerThread.interrupt();
+    }
+
+    private void run() {
+        while (!Thread.interrupted()) {
+            int workCount = processTasks() + sendDueSeenSummaries() + probeSeenSummaries();
+            idleStrategy.idle(workCount);
+        }
+    }
+
+    /**
+     * The messages which became ready are delivered after every task, outside of the quorum bookkeeping.
+     *
+     * @return number of executed tasks
+     */
+    private int processTasks() {
+        int numberOfTasks = 0;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            numberOfTasks++;
+
+            Payload payload;
+            while ((payload = readyToDeliver.poll()) != null) {
+                deliveryListener.accept(payload);
+            }
+        }
+        return numberOfTasks;
+    }
+
+    /**
+     * At most once per summary interval, sends to all the other hosts not suspected by the failure detector the summary
+     * of every origin of this shard from which messages were received or delivered since the previous summary.
+     *
+     * @return number of sent summaries
+     */
+    private int sendDueSeenSummaries() {
+        long nowNanos = System.nanoTime();
+        if (nowNanos - lastSeenSummaryTimeNanos < seenSummaryIntervalNanos) return 0;
+        lastSeenSummaryTimeNanos = nowNanos;
+
+        int numberOfSummaries = 0;
+        for (int originId : originIds) {
+            if (!isSeenSummaryDue[originId]) continue;
+            isSeenSummaryDue[originId] = false;
+            SeenPayload summary = createSeenSummary(originId, false);
+            for (Host host : otherHosts) {
+                if (failureDetector.isSuspected(host.getId())) continue;
+                bestEffortBroadcast.sendSeenSummary(summary, host.getId());
+                numberOfSummaries++;
+            }
+        }
+        return numberOfSummaries;
+    }
+
+    /**
+     * Once per probe interval, probes every host not suspected by the failure detector which has not reported having
+     * delivered all the messages received here from an origin, and has reported nothing about that origin since the
+     * previous probe interval. A host still reporting progress is not probed, its summaries keep coming anyway.
+     *
+     * @return number of sent probes
+     */
+    private int probeSeenSummaries() {
+        long nowNanos = System.nanoTime();
+        if (nowNanos - lastSeenSummaryProbeTimeNanos < seenSummaryProbeIntervalNanos) return 0;
+        lastSeenSummaryProbeTimeNanos = nowNanos;
+
+        int numberOfProbes = 0;
+        for (int originId : originIds) {
+            AcknowledgmentPayload received = receivedFromOrigins[originId].createAcknowledgment();
+            SeenPayload probe = null;
+            for (Host host : otherHosts) {
+                int id = host.getId();
+                boolean hasReported = hasReportedSinceProbe[id][originId];
+                hasReportedSinceProbe[id][originId] = false;
+                if (hasReported || failureDetector.isSuspected(id) || reportedDelivered[id][originId].covers(received)) {
+                    continue;
+                }
+                if (probe == null) {
+                    probe = new SeenPayload(originId, true, received,
+                            deliveredFromOrigins[originId].createAcknowledgment());
+                }
+                bestEffortBroadcast.sendSeenSummary(probe, id);
+                numberOfProbes++;
+            }
+        }
+        return numberOfProbes;
+    }
+
+    private SeenPayload createSeenSummary(int originId, boolean isProbe) {
+        return new SeenPayload(originId, isProbe, receivedFromOrigins[originId].createAcknowledgment(),
+                deliveredFromOrigins[originId].createAcknowledgment());
+    }
+}
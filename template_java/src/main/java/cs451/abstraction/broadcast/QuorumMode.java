@@ -0,0 +1,16 @@
+package cs451.abstraction.broadcast;
+
+/**
+ * <p>Which hosts {@link UniformReliableBroadcast} waits for to have seen a message before delivering it.</p>
+ */
+public enum QuorumMode {
+    /**
+     * Waits for a majority of all the hosts, tolerating the crash of any minority without a failure detector.
+     */
+    MAJORITY,
+    /**
+     * Waits for all the hosts not suspected by the {@link cs451.abstraction.FailureDetector}, which is faster when all
+     * the hosts are alive and tolerates the crash of any number of hosts, but relies on the suspicions being accurate.
+     */
+    ALL_CORRECT
+}
@@ -0,0 +1,246 @@
+package cs451.abstraction.broadcast;
+
+import cs451.abstraction.link.message.MessageId;
+import cs451.parser.Host;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>Tracks which hosts have seen each broadcast message, identified by its origin and sequence number at the origin,
+ * and reports the moment a message was seen by a quorum to the given listener, exactly once per message. The quorum
+ * is either more than half of the hosts, or all the hosts not excluded as crashed, depending on the
+ * {@link QuorumMode}.</p>
+ *
+ * <p>For every origin the messages are kept in a ring indexed by the sequence number, holding a bitset of the hosts
+ * which have seen the message and their count in primitive arrays. The ring starts at the lowest sequence number not
+ * released yet, so it only spans the messages still in progress. It grows by doubling when needed, and shrinks by
+ * halving once the messages in progress span less than a quarter of it, so that a spike does not hold memory for the
+ * rest of the run. Hosts seeing an already released message are ignored.</p>
+ *
+ * <p>Not thread-safe, the owner is responsible for synchronization.</p>
+ */
+public class QuorumTracker {
+
+    final private static int INITIAL_CAPACITY = 64;
+    final private static int RELEASED = -1;
+    final private static int REPORTED = -2;
+    // sequence numbers at the origins start from 1
+    final private static int FIRST_SEQUENCE_NUMBER = 1;
+
+    final private int majority;
+    final private int wordsPerMessage;
+    // hosts required to have seen a message in the ALL_CORRECT mode, null in the MAJORITY mode
+    final private long[] requiredHosts;
+    final private LongConsumer quorumListener;
+    // indexed by origin host identifier, created on the first message of the origin
+    final private OriginWindow[] windowsByOrigin;
+
+    public QuorumTracker(QuorumMode mode, List<Host> allHosts, LongConsumer quorumListener) {
+        int maxHostId = allHosts.stream().mapToInt(Host::getId).max().orElse(0);
+        this.majority = allHosts.size() / 2 + 1;
+        this.wordsPerMessage = maxHostId / Long.SIZE + 1;
+        this.requiredHosts = mode.equals(QuorumMode.ALL_CORRECT) ? new long[wordsPerMessage] : null;
+        if (requiredHosts != null) {
+            allHosts.forEach(host -> requiredHosts[host.getId() / Long.SIZE] |= 1L << host.getId());
+        }
+        this.quorumListener = quorumListener;
+        this.windowsByOrigin = new OriginWindow[maxHostId + 1];
+    }
+
+    /**
+     * Records that the host has seen the message, notifying the listener if this made the message seen by a quorum.
+     */
+    public void recordSeen(long messageId, int hostId) {
+        int originId = MessageId.getHostId(messageId);
+        OriginWindow window = windowsByOrigin[originId];
+        if (window == null) {
+            window = new OriginWindow();
+            windowsByOrigin[originId] = window;
+        }
+
+        if (window.recordSeen(MessageId.getSequenceNumber(messageId), hostId)) {
+            quorumListener.accept(messageId);
+        }
+    }
+
+    /**
+     * No longer waits for the host in the ALL_CORRECT mode, reporting the messages it was the last one missing for.
+     */
+    public void excludeHost(int hostId) {
+        if (requiredHosts == null) return;
+        requiredHosts[hostId / Long.SIZE] &= ~(1L << hostId);
+
+        for (int originId = 0; originId < windowsByOrigin.length; originId++) {
+            if (windowsByOrigin[originId] != null) {
+                int origin = originId;
+                windowsByOrigin[originId].reportReachedQuorums(
+                        sequenceNumber -> quorumListener.accept(MessageId.of(origin, sequenceNumber))
+                );
+            }
+        }
+    }
+
+    /**
+     * Waits again for the host in the ALL_CORRECT mode, for the messages whose quorum was not reached yet.
+     */
+    public void includeHost(int hostId) {
+        if (requiredHosts == null) return;
+        requiredHosts[hostId / Long.SIZE] |= 1L << hostId;
+    }
+
+    /**
+     * Stops tracking the message, to be called once it needs no more quorum information.
+     */
+    public void release(long messageId) {
+        OriginWindow window = windowsByOrigin[MessageId.getHostId(messageId)];
+        if (window != null) {
+            window.release(MessageId.getSequenceNumber(messageId));
+        }
+    }
+
+    private class OriginWindow {
+
+        private int baseSequenceNumber;
+        // highest sequence number seen or released so far
+        private int highestSequenceNumber;
+        private int[] seenCounts;
+        private long[] seenByBitsets;
+        // the ring must not be resized while its slots are being iterated over
+        private boolean isReporting;
+
+        private OriginWindow() {
+            this.baseSequenceNumber = FIRST_SEQUENCE_NUMBER;
+            this.highestSequenceNumber = FIRST_SEQUENCE_NUMBER - 1;
+            this.seenCounts = new int[INITIAL_CAPACITY];
+            this.seenByBitsets = new long[INITIAL_CAPACITY * wordsPerMessage];
+        }
+
+        /**
+         * @return true if this made the message reach its quorum
+         */
+        private boolean recordSeen(int sequenceNumber, int hostId) {
+            if (sequenceNumber < baseSequenceNumber) return false;
+            ensureCapacityFor(sequenceNumber);
+            highestSequenceNumber = Math.max(highestSequenceNumber, sequenceNumber);
+
+            int slot = slotOf(sequenceNumber);
+            if (seenCounts[slot] < 0) return false; // reported or released
+
+            int word = slot * wordsPerMessage + hostId / Long.SIZE;
+            long bit = 1L << hostId;
+            if ((seenByBitsets[word] & bit) != 0) return false;
+
+            seenByBitsets[word] |= bit;
+            seenCounts[slot]++;
+            return reportIfQuorumReached(slot);
+        }
+
+        private boolean reportIfQuorumReached(int slot) {
+            if (!isQuorumReached(slot)) return false;
+            seenCounts[slot] = REPORTED;
+            return true;
+        }
+
+        private boolean isQuorumReached(int slot) {
+            if (requiredHosts == null) {
+                return seenCounts[slot] >= majority;
+            }
+            for (int word = 0; word < wordsPerMessage; word++) {
+                if ((requiredHosts[word] & ~seenByBitsets[slot * wordsPerMessage + word]) != 0) return false;
+            }
+            return true;
+        }
+
+        private void reportReachedQuorums(IntConsumer sequenceNumberListener) {
+            int fromSequenceNumber = baseSequenceNumber;
+            int toSequenceNumber = highestSequenceNumber;
+            isReporting = true;
+            for (int sequenceNumber = fromSequenceNumber; sequenceNumber <= toSequenceNumber; sequenceNumber++) {
+                int slot = slotOf(sequenceNumber);
+                // the listener may release messages, but never grows the ring
+                if (sequenceNumber >= baseSequenceNumber && seenCounts[slot] > 0 && reportIfQuorumReached(slot)) {
+                    sequenceNumberListener.accept(sequenceNumber);
+                }
+            }
+            isReporting = false;
+            shrinkIfMostlyReleased();
+        }
+
+        private void release(int sequenceNumber) {
+            if (sequenceNumber < baseSequenceNumber) return;
+            ensureCapacityFor(sequenceNumber);
+            highestSequenceNumber = Math.max(highestSequenceNumber, sequenceNumber);
+            seenCounts[slotOf(sequenceNumber)] = RELEASED;
+
+            while (seenCounts[slotOf(baseSequenceNumber)] == RELEASED) {
+                clear(slotOf(baseSequenceNumber));
+                baseSequenceNumber++;
+            }
+            if (!isReporting) shrinkIfMostlyReleased();
+        }
+
+        private int capacity() {
+            return seenCounts.length;
+        }
+
+        private int slotOf(int sequenceNumber) {
+            return sequenceNumber & (capacity() - 1);
+        }
+
+        private void clear(int slot) {
+            seenCounts[slot] = 0;
+            for (int word = slot * wordsPerMessage; word < (slot + 1) * wordsPerMessage; word++) {
+                seenByBitsets[word] = 0;
+            }
+        }
+
+        /**
+         * Doubles the ring until it spans the sequence number.
+         */
+        private void ensureCapacityFor(int sequenceNumber) {
+            if (sequenceNumber - baseSequenceNumber < capacity()) return;
+
+            int newCapacity = capacity();
+            while (sequenceNumber - baseSequenceNumber >= newCapacity) {
+                newCapacity *= 2;
+            }
+            resize(newCapacity);
+        }
+
+        /**
+         * Halves the ring while the messages in progress span less than a quarter of it, so that it does not grow
+         * back right away.
+         */
+        private void shrinkIfMostlyReleased() {
+            int span = highestSequenceNumber - baseSequenceNumber + 1;
+            if (capacity() <= INITIAL_CAPACITY || span >= capacity() / 4) return;
+
+            int newCapacity = capacity();
+            while (newCapacity > INITIAL_CAPACITY && span < newCapacity / 4) {
+                newCapacity /= 2;
+            }
+            resize(newCapacity);
+        }
+
+        /**
+         * Moves the messages in progress, all of them between the base and the highest sequence number, to a ring of
+         * the new capacity.
+         */
+        private void resize(int newCapacity) {
+            int[] oldSeenCounts = seenCounts;
+            long[] oldSeenByBitsets = seenByBitsets;
+            int oldMask = capacity() - 1;
+            seenCounts = new int[newCapacity];
+            seenByBitsets = new long[newCapacity * wordsPerMessage];
+            for (int inProgress = baseSequenceNumber; inProgress <= highestSequenceNumber; inProgress++) {
+                int oldSlot = inProgress & oldMask;
+                int newSlot = slotOf(inProgress);
+                seenCounts[newSlot] = oldSeenCounts[oldSlot];
+                System.arraycopy(oldSeenByBitsets, oldSlot * wordsPerMessage,
+                        seenByBitsets, newSlot * wordsPerMessage, wordsPerMessage);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cs451.abstraction.broadcast;
+
+/**
+ * <p>How {@link UniformReliableBroadcast} disseminates the messages it receives for the first time. In both modes the
+ * hosts report the messages they have seen through periodic per-origin summaries sent to all the other hosts, amortized
+ * over many messages, so the relays only carry the payloads.</p>
+ */
+public enum RelayMode {
+    /**
+     * Relays every message to all the other hosts not known to have it yet. Costs up to a quadratic number of messages
+     * in the number of hosts per broadcast message, fewer when the summaries of the other hosts arrive first.
+     */
+    ALL_HOSTS,
+    /**
+     * Relays every message only to the next hosts in the ring of host identifiers not known to have it yet. Costs a
+     * linear number of messages per broadcast message.
+     */
+    RING_SUCCESSORS
+}
@@ -1,61 +1,116 @@
 package cs451.abstraction.broadcast;
 
+import cs451.abstraction.FailureDetectionObserver;
 import cs451.abstraction.link.HostResolver;
+import cs451.abstraction.link.LinkConfiguration;
+import cs451.abstraction.link.ReceivedSequenceTracker;
 import cs451.abstraction.link.message.*;
 import cs451.parser.Host;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-
-public class UniformReliableBroadcast extends Broadcaster {
-
-    final private static AtomicInteger ZERO = new AtomicInteger(0);
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>The state of the messages is indexed by their 64-bit {@link MessageId}, made of the origin and the sequence
+ * number at the origin, in primitive-keyed maps, so that no payload chain is hashed or compared on the delivery path.
+ * It is partitioned by the origin into {@link OriginShard shards}, each owned by its own worker thread without locks,
+ * as the messages of different origins are independent. The number of workers is set by
+ * {@link BroadcastConfiguration#getWorkers()}, so that the throughput scales with the cores. All the messages of an
+ * origin are delivered by the same worker, one at a time, while the messages of different origins may be delivered
+ * concurrently.</p>
+ *
+ * <p>The hosts which have seen each message are tracked by the {@link QuorumTracker}, which reports when a message was
+ * seen by a quorum: a majority of the hosts or, in the {@link QuorumMode#ALL_CORRECT} mode, all the hosts not
+ * suspected by the failure detector of the link layer. The delivery is decided right then, so the cost of a delivery
+ * does not depend on the number of messages in progress.</p>
+ *
+ * <p>The messages already received from every origin are summarized by a {@link ReceivedSequenceTracker}, a
+ * watermark below which all the sequence numbers were received and a bitmap of the ones above it. As the perfect
+ * links never drop a message, not even to a host suspected to have crashed, the relay to all the other hosts is
+ * guaranteed once sent, so a delivered message needs no more state than its bit in the watermark, and its payload and
+ * quorum are dropped right away. The rings of the quorums grow with the messages not yet seen by a quorum, and the
+ * rings of the watermarks with the gap between the lowest missing and the highest received message of an origin, e.g.
+ * while a slow or stopped host holds back an old message; both shrink back once the gap is closed. The memory of this
+ * layer thus depends on the messages in progress rather than on the length of the run, but the link layer holds every
+ * message to a host until it is acknowledged, so the messages to a stopped host accumulate for as long as it is
+ * stopped, and the ones to a crashed host for the rest of the run.</p>
+ *
+ * <p>Every host reports the messages it has received to all the others in per-origin {@link SeenPayload summaries},
+ * sent at most once per summary interval when they changed, without link sequence numbers, so that a newer summary
+ * supersedes an older one instead of queueing behind it. They are recorded in the quorum as if the reporting host had
+ * relayed the messages, so the evidence that a host has seen a message does not cost a copy of its payload. The payloads are relayed only to carry the message to
+ * the hosts which may not have it: all the other hosts, or the next hosts in the ring with
+ * {@link RelayMode#RING_SUCCESSORS}, except the origin, the host the message came from and the hosts whose summaries
+ * already cover it. With the ring a message still reaches every correct host through the chain of relays, as long as
+ * fewer than the relay fanout consecutive hosts in the ring crash.</p>
+ */
+public class UniformReliableBroadcast extends Broadcaster implements FailureDetectionObserver {
 
     final private int hostId;
-    final private int halfNumberOfHosts;
-
-    final private Set<Payload> delivered;
-    final private Set<Payload> pending;
-    final private Set<Payload> doneBroadcast;
-    final private Set<Payload> toDeliver;
-    final private Map<Payload, Set<Integer>> seenBy;
-    final private Map<Payload, AtomicInteger> numberOfHostsThatSeenMessage;
+    // indexed by origin host identifier modulo the number of shards
+    final private OriginShard[] shards;
 
     final private MessageFactory messageFactory;
     final private BestEffortBroadcast bestEffortBroadcast;
-    final private Thread deliveryThread;
 
-    public UniformReliableBroadcast(int hostId, List<Host> allHosts, PayloadFactory payloadFactory) {
+    public UniformReliableBroadcast(int hostId, List<Host> allHosts, PayloadFactory payloadFactory,
+                                    LinkConfiguration linkConfiguration, BroadcastConfiguration configuration) {
         this.hostId = hostId;
-        this.halfNumberOfHosts = allHosts.size() / 2;
-
-        this.delivered = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.pending = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.doneBroadcast = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.toDeliver = Collections.newSetFromMap(new ConcurrentHashMap<>());
-
-        this.seenBy = new ConcurrentHashMap<>();
-        this.numberOfHostsThatSeenMessage = new ConcurrentHashMap<>();
-
         this.messageFactory = new MessageFactory(new HostResolver(allHosts));
-        this.bestEffortBroadcast = new BestEffortBroadcast(hostId, allHosts, payloadFactory);
+        this.bestEffortBroadcast = new BestEffortBroadcast(hostId, allHosts, payloadFactory, linkConfiguration);
+        this.shards = createShards(hostId, allHosts, linkConfiguration, configuration);
+
         bestEffortBroadcast.registerDeliveryObserver(this);
         bestEffortBroadcast.registerBroadcastObserver(this);
+        if (configuration.getQuorumMode().equals(QuorumMode.ALL_CORRECT)) {
+            bestEffortBroadcast.getFailureDetector().registerObserver(this);
+        }
+        for (OriginShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    private OriginShard[] createShards(int hostId, List<Host> allHosts, LinkConfiguration linkConfiguration,
+                                       BroadcastConfiguration configuration) {
+        int numberOfShards = Math.max(1, Math.min(configuration.getWorkers(), allHosts.size()));
+        List<Host> relaySuccessors = findRingSuccessors(hostId, allHosts, configuration.getRelayFanout());
+
+        OriginShard[] shards = new OriginShard[numberOfShards];
+        for (int shardIndex = 0; shardIndex < numberOfShards; shardIndex++) {
+            List<Integer> originIds = new ArrayList<>();
+            for (Host host : allHosts) {
+                if (host.getId() % numberOfShards == shardIndex) originIds.add(host.getId());
+            }
+            shards[shardIndex] = new OriginShard(hostId, allHosts, originIds, relaySuccessors, bestEffortBroadcast,
+                    this::deliver, linkConfiguration, configuration);
+        }
+        return shards;
+    }
 
-        this.deliveryThread = startDeliveryThread();
+    private static List<Host> findRingSuccessors(int hostId, List<Host> allHosts, int fanout) {
+        List<Host> ring = new ArrayList<>(allHosts);
+        ring.sort(Comparator.comparingInt(Host::getId));
+        int position = 0;
+        while (ring.get(position).getId() != hostId) position++;
+
+        List<Host> successors = new ArrayList<>();
+        for (int distance = 1; distance <= Math.min(fanout, ring.size() - 1); distance++) {
+            successors.add(ring.get((position + distance) % ring.size()));
+        }
+        return successors;
+    }
+
+    private OriginShard shardOf(int originId) {
+        return shards[originId % shards.length];
     }
 
     @Override
     public void broadcast(Payload payload) {
-        addToPending(payload);
+        OriginShard shard = shardOf(hostId);
+        shard.startOwnBroadcast(payload);
         bestEffortBroadcast.broadcast(payload, false);
-        doneBroadcast.add(payload);
-    }
-
-    private void addToPending(Payload payload) {
-        pending.add(payload);
-        toDeliver.add(payload);
+        shard.finishOwnBroadcast(payload.getMessageId());
     }
 
     @Override
@@ -65,98 +120,51 @@ public class UniformReliableBroadcast extends Broadcaster {
         }
     }
 
+    /**
+     * The payloads are passed on as received, so that the relays reuse their encoding.
+     */
     @Override
     public void notifyOfDelivery(Message message) {
-        Payload payload = message.getPayload();
-
-        recordSenderHaveSeenMessage(message);
-        if (!isPending(payload)) {
-            relay(payload);
+        DatagramData data = message.getData();
+        int senderId = data.getSenderHostId();
+        if (data.getDataType().equals(DatagramDataType.SEEN)) {
+            SeenPayload seen = (SeenPayload) data.getPayload();
+            shardOf(seen.getOriginalSenderId()).receiveSeenSummary(senderId, seen);
+        } else {
+            Payload payload = data.getPayloadAsReceived();
+            shardOf(payload.getOriginalSenderId()).receive(payload, senderId);
         }
     }
 
-    private void recordSenderHaveSeenMessage(Message message) {
-        Payload payload = message.getPayload();
-        numberOfHostsThatSeenMessage.putIfAbsent(payload, new AtomicInteger(0));
-        seenBy.putIfAbsent(payload, Collections.newSetFromMap(new ConcurrentHashMap<>()));
-
-        boolean wasAdded = seenBy.get(payload).add(message.getData().getSenderHostId());
-        if (wasAdded) numberOfHostsThatSeenMessage.get(payload).incrementAndGet();
-    }
-
-    private void relay(Payload payload) {
-        addToPending(payload);
-        bestEffortBroadcast.broadcast(payload, true);
-    }
-
-    private void runDelivery() {
-        while (!Thread.interrupted()) {
-            processDeliveries();
+    /**
+     * A suspected host is no longer waited for, which may complete the quorum of the messages it has not seen.
+     */
+    @Override
+    public void notifyOfSuspicion(int hostId) {
+        for (OriginShard shard : shards) {
+            shard.excludeHost(hostId);
         }
     }
 
-    private void processDeliveries() {
-        Set<Payload> toRemove = new HashSet<>();
-
-        toDeliver.forEach(payload -> {
-            // own origin messages should not be delivered through the relayed broadcast from the network
-            boolean isOfOwnOrigin = isOfOwnOrigin(payload);
-            boolean isOfOwnOriginAndBroadcast = isOfOwnOrigin && doneBroadcast.contains(payload);
-
-            if (canDeliver(payload) && (!isOfOwnOrigin || isOfOwnOriginAndBroadcast)) {
-                deliver(createDeliveredMessageFromPayload(payload));
-                toRemove.add(payload);
-                if (isOfOwnOriginAndBroadcast) {
-                    doneBroadcast.remove(payload);
-                }
-            }
-        });
-        toDeliver.removeAll(toRemove);
-    }
-
-    private Message createDeliveredMessageFromPayload(Payload payload) {
-        return messageFactory.createMessageWithPayload(payload.getOriginalSenderId(), hostId, payload);
-    }
-
-    private void deliver(Message message) {
-        delivered.add(message.getPayload());
-        emitDeliverEvent(message);
-    }
-
-    private boolean canDeliver(Payload payload) {
-        return isPending(payload) && wasSeenByMoreThanHalfHosts(payload) && isNotDelivered(payload);
-    }
-
-    private boolean isPending(Payload payload) {
-        return pending.contains(payload);
-    }
-
-    private boolean isNotDelivered(Payload payload) {
-        return !delivered.contains(payload);
-    }
-
-    private boolean wasSeenByMoreThanHalfHosts(Payload payload) {
-        return numberOfHostsThatSeenMessage.getOrDefault(payload, ZERO).get() > halfNumberOfHosts;
-    }
-
-    private boolean isOfOwnOrigin(Payload payload) {
-        return payload.getOriginalSenderId() == hostId;
-    }
-
-    private Thread startDeliveryThread() {
-        Thread deliveryThread = new Thread(this::runDelivery);
-        deliveryThread.start();
-        return deliveryThread;
+    @Override
+    public void notifyOfRestoration(int hostId) {
+        for (OriginShard shard : shards) {
+            shard.includeHost(hostId);
+        }
     }
 
-    private void stopDeliveryThread() {
-        deliveryThread.interrupt();
+    /**
+     * Called by the worker of the shard of the origin of the payload.
+     */
+    private void deliver(Payload payload) {
+        emitDeliverEvent(messageFactory.createMessageWithPayload(payload.getOriginalSenderId(), hostId, payload));
     }
 
     @Override
     public void stop() {
-        stopDeliveryThread();
+        for (OriginShard shard : shards) {
+            shard.stop();
+        }
         bestEffortBroadcast.stop();
     }
 }
-
@@ -0,0 +1,61 @@
+package cs451.abstraction.link;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Loss-based additive increase, multiplicative decrease congestion control with slow start, as in TCP Reno.
+ * The window is halved at most once per round-trip time, no matter how many messages of the same window are lost.
+ * Until the first round-trip time is measured, the initial retransmission timeout stands in for it, so that the
+ * losses of the first window do not halve it over and over.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://tools.ietf.org/html/rfc5681">RFC 5681 - TCP Congestion Control</a></li>
+ * </ul>
+ * </p>
+ */
+public class AimdCongestionController implements CongestionController {
+
+    final private static int INITIAL_CONGESTION_WINDOW = 128;
+    final private static double DECREASE_FACTOR = 0.5;
+
+    private double congestionWindow;
+    private double slowStartThreshold;
+    private long lastRoundTripTimeNanos;
+    private long recoveryEndNanos;
+
+    public AimdCongestionController() {
+        this.congestionWindow = INITIAL_CONGESTION_WINDOW;
+        this.slowStartThreshold = MAX_CONGESTION_WINDOW;
+        this.lastRoundTripTimeNanos =
+                TimeUnit.MICROSECONDS.toNanos(TransmissionParameters.BASE_RETRANSMISSION_TIMEOUT_MICROS);
+        this.recoveryEndNanos = System.nanoTime();
+    }
+
+    @Override
+    public synchronized int getCongestionWindow() {
+        return (int) congestionWindow;
+    }
+
+    @Override
+    public synchronized void onAcknowledged(int numberOfAcknowledged, long roundTripTimeMeasurementNanos) {
+        if (roundTripTimeMeasurementNanos != NO_MEASUREMENT) lastRoundTripTimeNanos = roundTripTimeMeasurementNanos;
+
+        if (congestionWindow < slowStartThreshold) {
+            congestionWindow += numberOfAcknowledged;
+        } else {
+            congestionWindow += (double) numberOfAcknowledged / congestionWindow;
+        }
+        congestionWindow = Math.min(congestionWindow, MAX_CONGESTION_WINDOW);
+    }
+
+    @Override
+    public synchronized void onLoss() {
+        long nowNanos = System.nanoTime();
+        if (nowNanos - recoveryEndNanos < 0) return;
+
+        slowStartThreshold = Math.max(congestionWindow * DECREASE_FACTOR, MIN_CONGESTION_WINDOW);
+        congestionWindow = slowStartThreshold;
+        recoveryEndNanos = nowNanos + lastRoundTripTimeNanos;
+    }
+}
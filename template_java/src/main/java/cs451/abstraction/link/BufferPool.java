@@ -0,0 +1,33 @@
+package cs451.abstraction.link;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>Pool of reusable direct byte buffers of a fixed capacity, so that the sending and receiving paths do not
+ * allocate per datagram.</p>
+ */
+public class BufferPool {
+
+    final private int bufferCapacity;
+    final private Queue<ByteBuffer> availableBuffers;
+
+    public BufferPool(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+        this.availableBuffers = new ConcurrentLinkedQueue<>();
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = availableBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        availableBuffers.add(buffer);
+    }
+}
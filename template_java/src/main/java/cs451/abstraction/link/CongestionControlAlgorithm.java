@@ -0,0 +1,14 @@
+package cs451.abstraction.link;
+
+public enum CongestionControlAlgorithm {
+    AIMD,
+    VEGAS;
+
+    public CongestionController create() {
+        if (this == AIMD) {
+            return new AimdCongestionController();
+        } else {
+            return new VegasCongestionController();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cs451.abstraction.link;
+
+/**
+ * <p>Computes the congestion window, i.e. the number of messages that can be in flight towards a single host,
+ * from the acknowledgment and loss signals of that link.</p>
+ */
+public interface CongestionController {
+
+    int MIN_CONGESTION_WINDOW = 16;
+    int MAX_CONGESTION_WINDOW = 1 << 16;
+    long NO_MEASUREMENT = -1;
+
+    int getCongestionWindow();
+
+    /**
+     * @param numberOfAcknowledged number of messages newly acknowledged by a single acknowledgment
+     * @param roundTripTimeMeasurementNanos RTT sample taken from this acknowledgment, {@link #NO_MEASUREMENT} if
+     *                                      there was none
+     */
+    void onAcknowledged(int numberOfAcknowledged, long roundTripTimeMeasurementNanos);
+
+    void onLoss();
+}
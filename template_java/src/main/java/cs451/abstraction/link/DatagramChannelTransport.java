@@ -0,0 +1,47 @@
+package cs451.abstraction.link;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * <p>Transport built on NIO {@link DatagramChannel}, reading and writing directly from and to (direct) byte buffers
+ * without intermediate arrays or packet objects.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://www.baeldung.com/java-nio-datagram-channel">Baeldung - Guide to DatagramChannel</a></li>
+ *     <li><a href="https://docs.oracle.com/javase/8/docs/api/java/nio/ByteBuffer.html#direct">Direct vs. non-direct buffers</a></li>
+ * </ul>
+ * </p>
+ */
+public class DatagramChannelTransport implements DatagramTransport {
+
+    final private DatagramChannel channel;
+
+    public DatagramChannelTransport(InetSocketAddress localAddress) throws IOException {
+        this.channel = DatagramChannel.open();
+        channel.configureBlocking(true);
+        if (localAddress != null) {
+            channel.bind(localAddress);
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer datagram, InetSocketAddress receiverAddress) throws IOException {
+        channel.send(datagram, receiverAddress);
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        channel.receive(buffer);
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
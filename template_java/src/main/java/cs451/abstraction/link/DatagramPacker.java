@@ -0,0 +1,146 @@
+package cs451.abstraction.link;
+
+import cs451.abstraction.link.message.DatagramData;
+import cs451.abstraction.link.message.Message;
+import cs451.abstraction.link.message.SeenPayload;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>Packs several {@link DatagramData} records destined to the same host into a single UDP datagram of at most
+ * {@link LinkConfiguration#getMaxDatagramSize()} bytes.</p>
+ *
+ * <p>Frame layout: <code>[number of records: short]</code> followed by the records, each encoded as
+ * <code>[record length: short][record bytes]</code>. With packing disabled every frame holds exactly one record.</p>
+ *
+ * <p>Records are encoded directly into direct buffers taken from the {@link BufferPool}, which are returned to the
+ * pool once the frame is sent.</p>
+ *
+ * <p>Not thread-safe, meant to be used only by the sending thread.</p>
+ */
+public class DatagramPacker {
+
+    final private static int FRAME_HEADER_SIZE = Short.BYTES;
+    final private static int RECORD_HEADER_SIZE = Short.BYTES;
+    // the record lengths are encoded as shorts
+    final private static int MAX_DATAGRAM_SIZE = Short.MAX_VALUE;
+
+    final private boolean packingEnabled;
+    final private int maxDatagramSize;
+    final private MessagesStorage storage;
+    final private BufferPool bufferPool;
+    final private BiConsumer<ByteBuffer, InetSocketAddress> datagramSender;
+    final private Map<Integer, Frame> openFrames;
+
+    public DatagramPacker(LinkConfiguration configuration, MessagesStorage storage, BufferPool bufferPool,
+                          BiConsumer<ByteBuffer, InetSocketAddress> datagramSender) {
+        this.packingEnabled = configuration.isPackingEnabled();
+        this.maxDatagramSize = configuration.getMaxDatagramSize();
+        this.storage = storage;
+        this.bufferPool = bufferPool;
+        this.datagramSender = datagramSender;
+        this.openFrames = new HashMap<>();
+    }
+
+    /**
+     * @return maximum size of a single record, larger messages have to be fragmented
+     */
+    public static int getMaxRecordSize(int maxDatagramSize) {
+        return maxDatagramSize - FRAME_HEADER_SIZE - RECORD_HEADER_SIZE;
+    }
+
+    /**
+     * @return smallest maximum datagram size fitting the largest records which cannot be fragmented: a seen summary
+     * made of two acknowledgments with full selective bitmaps, larger than any single acknowledgment, and a negative
+     * acknowledgment of at least one range
+     */
+    public static int getMinDatagramSize() {
+        int maxAcknowledgmentSize = ReceivedSequenceTracker.getMaxAcknowledgmentSize();
+        return FRAME_HEADER_SIZE + RECORD_HEADER_SIZE + DatagramData.HEADER_BYTE_SIZE
+                + SeenPayload.getMaxSizeInBytes(maxAcknowledgmentSize);
+    }
+
+    public static int getMaxDatagramSize() {
+        return MAX_DATAGRAM_SIZE;
+    }
+
+    public void pack(Message message) {
+        DatagramData data = message.getData();
+        int recordSize = data.getSizeInBytes();
+        if (FRAME_HEADER_SIZE + RECORD_HEADER_SIZE + recordSize > maxDatagramSize) {
+            throw new RuntimeException("Message of " + recordSize + " bytes exceeds the maximum datagram size");
+        }
+
+        int receiverId = message.getReceiver().getId();
+        Frame frame = openFrames.computeIfAbsent(receiverId, id -> new Frame(storage.getChannel(id)));
+        if (!frame.canFit(recordSize)) {
+            emit(frame);
+        }
+        frame.add(data, recordSize);
+
+        if (!packingEnabled) {
+            emit(frame);
+        }
+    }
+
+    public void flush() {
+        openFrames.values().forEach(frame -> {
+            if (!frame.isEmpty()) emit(frame);
+        });
+    }
+
+    private void emit(Frame frame) {
+        ByteBuffer datagram = frame.seal();
+        datagramSender.accept(datagram, frame.receiverAddress);
+        bufferPool.release(datagram);
+    }
+
+    private class Frame {
+
+        final private PeerChannel channel;
+        final private InetSocketAddress receiverAddress;
+        private ByteBuffer buffer;
+        private int numberOfRecords;
+
+        Frame(PeerChannel channel) {
+            this.channel = channel;
+            this.receiverAddress = channel.getAddress();
+            this.buffer = null;
+            this.numberOfRecords = 0;
+        }
+
+        boolean isEmpty() {
+            return numberOfRecords == 0;
+        }
+
+        boolean canFit(int recordSize) {
+            return isEmpty() || buffer.remaining() >= RECORD_HEADER_SIZE + recordSize;
+        }
+
+        void add(DatagramData data, int recordSize) {
+            if (isEmpty()) {
+                buffer = bufferPool.acquire();
+                buffer.limit(maxDatagramSize);
+                buffer.position(FRAME_HEADER_SIZE);
+            }
+            buffer.putShort((short) recordSize);
+            data.writeTo(buffer);
+            numberOfRecords++;
+            channel.markSent();
+        }
+
+        ByteBuffer seal() {
+            ByteBuffer sealed = buffer;
+            sealed.putShort(0, (short) numberOfRecords);
+            sealed.flip();
+
+            buffer = null;
+            numberOfRecords = 0;
+            return sealed;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cs451.abstraction.link;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Fallback transport built on the blocking {@link DatagramSocket}. A single packet and its backing array are
+ * reused for all the datagrams, data from direct buffers is copied through that array.</p>
+ *
+ * <p>Unlike a {@link java.nio.channels.DatagramChannel}, the socket does not react to the interruption of a thread
+ * blocked on it, which is only woken up by closing the socket.</p>
+ */
+public class DatagramSocketTransport implements DatagramTransport {
+
+    final private DatagramSocket socket;
+    final private byte[] packetBytes;
+    final private DatagramPacket packet;
+
+    public DatagramSocketTransport(InetSocketAddress localAddress, int maxDatagramSize) throws IOException {
+        this.socket = localAddress != null ? new DatagramSocket(localAddress) : new DatagramSocket();
+        this.packetBytes = new byte[maxDatagramSize];
+        this.packet = new DatagramPacket(packetBytes, packetBytes.length);
+    }
+
+    @Override
+    public synchronized void send(ByteBuffer datagram, InetSocketAddress receiverAddress) throws IOException {
+        int length = datagram.remaining();
+        datagram.get(packetBytes, 0, length);
+        packet.setData(packetBytes, 0, length);
+        packet.setSocketAddress(receiverAddress);
+        socket.send(packet);
+    }
+
+    @Override
+    public synchronized void receive(ByteBuffer buffer) throws IOException {
+        packet.setData(packetBytes, 0, packetBytes.length);
+        socket.receive(packet);
+        buffer.clear();
+        buffer.put(packetBytes, packet.getOffset(), packet.getLength());
+        buffer.flip();
+    }
+
+    /**
+     * Not synchronized, as it has to wake up a thread blocked in {@link #receive(ByteBuffer)} holding the monitor.
+     */
+    @Override
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,27 @@
+package cs451.abstraction.link;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Sends and receives raw UDP datagrams, abstracting over the underlying socket API used by {@link Sender} and
+ * {@link Receiver}.</p>
+ */
+public interface DatagramTransport {
+
+    /**
+     * Sends the remaining bytes of the buffer as a single datagram.
+     */
+    void send(ByteBuffer datagram, InetSocketAddress receiverAddress) throws IOException;
+
+    /**
+     * Blocks until a datagram is received and copies it into the buffer, which is left ready for reading.
+     */
+    void receive(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Releases the socket. A thread blocked in {@link #receive(ByteBuffer)} is woken up with an {@link IOException}.
+     */
+    void close() throws IOException;
+}
@@ -3,33 +3,33 @@ package cs451.abstraction.link;
 import cs451.abstraction.link.message.DatagramData;
 import cs451.parser.Host;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class HostResolver {
 
-    final private Map<Integer, Host> hostMapping;
+    // indexed by host identifier, null for identifiers without a host
+    final private Host[] hostsById;
 
     public HostResolver(List<Host> hosts) {
-        this.hostMapping = createHostMapping(hosts);
+        this.hostsById = createHostMapping(hosts);
     }
 
-    private Map<Integer, Host> createHostMapping(List<Host> hosts) {
-        Map<Integer, Host> mapping = new HashMap<>();
-        hosts.forEach(host -> mapping.put(host.getId(), host));
+    private Host[] createHostMapping(List<Host> hosts) {
+        int maxHostId = hosts.stream().mapToInt(Host::getId).max().orElse(0);
+        Host[] mapping = new Host[maxHostId + 1];
+        hosts.forEach(host -> mapping[host.getId()] = host);
         return mapping;
     }
 
     public Host resolveReceiverHost(DatagramData data) {
-        return hostMapping.get(data.getReceiverHostId());
+        return hostsById[data.getReceiverHostId()];
     }
 
     public Host resolveSenderHost(DatagramData data) {
-        return hostMapping.get(data.getSenderHostId());
+        return hostsById[data.getSenderHostId()];
     }
 
     public Host getHostById(int hostId) {
-        return hostMapping.get(hostId);
+        return hostsById[hostId];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package cs451.abstraction.link;
+
+import cs451.abstraction.BackoffIdleStrategy;
+import cs451.abstraction.IdleStrategy;
+
+import java.time.Duration;
+
+/**
+ * <p>Tunable parameters of the link layer, shared by {@link PerfectLink}, {@link Sender} and {@link Receiver}. The idle
+ * strategy is also used by the threads of the broadcast abstractions built on top of it.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://en.wikipedia.org/wiki/Maximum_transmission_unit">Maximum transmission unit</a></li>
+ * </ul>
+ * </p>
+ */
+public class LinkConfiguration {
+
+    // Ethernet MTU (1500 bytes) minus IPv4 (20 bytes) and UDP (8 bytes) headers
+    final private static int DEFAULT_MAX_DATAGRAM_SIZE = 1472;
+
+    final private static int DEFAULT_PACING_MAX_BURST = 32;
+
+    // kept well below the minimum retransmission timeout, so that delaying acknowledgments never triggers retransmissions
+    final private static Duration DEFAULT_ACKNOWLEDGMENT_DELAY = Duration.ofMillis(1);
+
+    final private static Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofMillis(100);
+    // initial value, doubled on every wrong suspicion
+    final private static Duration DEFAULT_SUSPICION_TIMEOUT = Duration.ofSeconds(1);
+
+    final private static int DEFAULT_IDLE_SPINS = 20;
+    final private static int DEFAULT_IDLE_YIELDS = 10;
+    final private static Duration DEFAULT_IDLE_MIN_PARK_PERIOD = Duration.ofNanos(1000);
+    // bounds the latency of work that arrives without waking up the idle thread, e.g. expiring retransmission timers
+    final private static Duration DEFAULT_IDLE_MAX_PARK_PERIOD = Duration.ofMillis(1);
+
+    private boolean packingEnabled;
+    private int maxDatagramSize;
+    private TransportType transportType;
+    private CongestionControlAlgorithm congestionControlAlgorithm;
+    private boolean pacingEnabled;
+    private int pacingMaxBurst;
+    private Duration acknowledgmentDelay;
+    private Duration heartbeatInterval;
+    private Duration suspicionTimeout;
+    private int idleSpins;
+    private int idleYields;
+    private Duration idleMinParkPeriod;
+    private Duration idleMaxParkPeriod;
+
+    public LinkConfiguration() {
+        this.packingEnabled = true;
+        this.maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+        this.transportType = TransportType.DATAGRAM_CHANNEL;
+        this.congestionControlAlgorithm = CongestionControlAlgorithm.AIMD;
+        this.pacingEnabled = false;
+        this.pacingMaxBurst = DEFAULT_PACING_MAX_BURST;
+        this.acknowledgmentDelay = DEFAULT_ACKNOWLEDGMENT_DELAY;
+        this.heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+        this.suspicionTimeout = DEFAULT_SUSPICION_TIMEOUT;
+        this.idleSpins = DEFAULT_IDLE_SPINS;
+        this.idleYields = DEFAULT_IDLE_YIELDS;
+        this.idleMinParkPeriod = DEFAULT_IDLE_MIN_PARK_PERIOD;
+        this.idleMaxParkPeriod = DEFAULT_IDLE_MAX_PARK_PERIOD;
+    }
+
+    /**
+     * Each worker thread needs its own instance, as the strategy keeps the backoff state of the thread.
+     */
+    public IdleStrategy createIdleStrategy() {
+        return new BackoffIdleStrategy(idleSpins, idleYields, idleMinParkPeriod.toNanos(), idleMaxParkPeriod.toNanos());
+    }
+
+    public boolean isPackingEnabled() {
+        return packingEnabled;
+    }
+
+    public void setPackingEnabled(boolean packingEnabled) {
+        this.packingEnabled = packingEnabled;
+    }
+
+    public int getMaxDatagramSize() {
+        return maxDatagramSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the size does not fit the largest records which cannot be fragmented, or
+     * exceeds the lengths encodable in the datagram frame
+     */
+    public void setMaxDatagramSize(int maxDatagramSize) {
+        int minDatagramSize = DatagramPacker.getMinDatagramSize();
+        if (maxDatagramSize < minDatagramSize || maxDatagramSize > DatagramPacker.getMaxDatagramSize()) {
+            throw new IllegalArgumentException("Maximum datagram size " + maxDatagramSize + " out of range ["
+                    + minDatagramSize + ", " + DatagramPacker.getMaxDatagramSize() + "]");
+        }
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    public void setTransportType(TransportType transportType) {
+        this.transportType = transportType;
+    }
+
+    public CongestionControlAlgorithm getCongestionControlAlgorithm() {
+        return congestionControlAlgorithm;
+    }
+
+    public void setCongestionControlAlgorithm(CongestionControlAlgorithm congestionControlAlgorithm) {
+        this.congestionControlAlgorithm = congestionControlAlgorithm;
+    }
+
+    public boolean isPacingEnabled() {
+        return pacingEnabled;
+    }
+
+    public void setPacingEnabled(boolean pacingEnabled) {
+        this.pacingEnabled = pacingEnabled;
+    }
+
+    public int getPacingMaxBurst() {
+        return pacingMaxBurst;
+    }
+
+    public void setPacingMaxBurst(int pacingMaxBurst) {
+        this.pacingMaxBurst = pacingMaxBurst;
+    }
+
+    /**
+     * Longest time an acknowledgment waits to be piggybacked on data going to the acknowledged host before it is sent
+     * on its own.
+     */
+    public Duration getAcknowledgmentDelay() {
+        return acknowledgmentDelay;
+    }
+
+    public void setAcknowledgmentDelay(Duration acknowledgmentDelay) {
+        this.acknowledgmentDelay = acknowledgmentDelay;
+    }
+
+    /**
+     * Period of the heartbeats sent to the hosts which were sent nothing else in the meantime.
+     */
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /**
+     * Initial time without hearing from a host after which the {@link cs451.abstraction.FailureDetector} suspects it.
+     */
+    public Duration getSuspicionTimeout() {
+        return suspicionTimeout;
+    }
+
+    public void setSuspicionTimeout(Duration suspicionTimeout) {
+        this.suspicionTimeout = suspicionTimeout;
+    }
+
+    public int getIdleSpins() {
+        return idleSpins;
+    }
+
+    public void setIdleSpins(int idleSpins) {
+        this.idleSpins = idleSpins;
+    }
+
+    public int getIdleYields() {
+        return idleYields;
+    }
+
+    public void setIdleYields(int idleYields) {
+        this.idleYields = idleYields;
+    }
+
+    public Duration getIdleMinParkPeriod() {
+        return idleMinParkPeriod;
+    }
+
+    public void setIdleMinParkPeriod(Duration idleMinParkPeriod) {
+        this.idleMinParkPeriod = idleMinParkPeriod;
+    }
+
+    public Duration getIdleMaxParkPeriod() {
+        return idleMaxParkPeriod;
+    }
+
+    public void setIdleMaxParkPeriod(Duration idleMaxParkPeriod) {
+        this.idleMaxParkPeriod = idleMaxParkPeriod;
+    }
+}
@@ -1,14 +1,16 @@
 package cs451.abstraction.link;
 
+import cs451.abstraction.LongHashMap;
+import cs451.abstraction.link.message.AcknowledgmentPayload;
 import cs451.abstraction.link.message.DatagramData;
 import cs451.abstraction.link.message.Message;
+import cs451.abstraction.link.message.NegativeAcknowledgmentPayload;
 import cs451.abstraction.link.message.TransmissionHistory;
 import cs451.parser.Host;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * <p>Used resources:
@@ -19,135 +21,249 @@ import java.util.concurrent.ConcurrentHashMap;
  *     <li><a href="https://stackoverflow.com/questions/5490346/synchronized-methods">Synchronized methods 1</a></li>
  *     <li><a href="https://stackoverflow.com/questions/40072018/about-calling-methods-from-a-synchronized-block">Synchronized methods 2</a></li>
  *     <li><a href="https://www.journaldev.com/378/java-util-concurrentmodificationexception#to-avoid-concurrentmodificationexception-in-multi-threaded-environment">Dealing with ConcurrentModificationException</a></li>
- *     <li><a href="https://stackoverflow.com/questions/6992608/why-there-is-no-concurrenthashset-against-concurrenthashmap">Concurrent set</a></li>
  *     <li><a href="https://stackoverflow.com/questions/25704325/return-copies-of-private-data-rather-than-references">Return copies of fields</a></li>
- *     <li><a href="https://www.baeldung.com/java-immutable-set">Immutable set</a></li>
  * </ul>
  * </p>
  */
 public class MessagesStorage {
 
-    final private Map<Integer, TransmissionParameters> transmissionParametersForHosts;
-    final private Set<Message> toSend;
-    final private Map<Message, TransmissionHistory> recentUnacknowledgedMessages;
-    final private Map<Message, TransmissionHistory> staleUnacknowledgedMessages;
-    final private Map<DatagramData, Instant> receivedData;
-    final private Set<Message> pendingAcknowledgmentReplies;
-    final private ThroughputMonitor throughputMonitor;
+    final private static long RETRANSMISSION_TIMER_TICK_NANOS = Duration.ofMillis(1).toNanos();
 
-    public MessagesStorage(List<Host> hosts, ThroughputMonitor throughputMonitor) {
-        this.transmissionParametersForHosts = initializeTransmissionParameters(hosts);
+    // indexed by host identifier, null for identifiers without a host
+    final private PeerChannel[] channelsByHostId;
+    final private List<PeerChannel> channels;
+    final private Queue<Message> toTransmit;
+    final private TimerWheel<Message> retransmissionTimers;
+    final private Queue<Message> negativelyAcknowledgedMessages;
+    final private Queue<DatagramData> receivedData;
 
-        this.toSend = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.recentUnacknowledgedMessages = new ConcurrentHashMap<>();
-        this.staleUnacknowledgedMessages = new ConcurrentHashMap<>();
-        this.receivedData = new ConcurrentHashMap<>();
-        // Concurrent set: https://stackoverflow.com/a/6992643
-        this.pendingAcknowledgmentReplies = Collections.newSetFromMap(new ConcurrentHashMap<>());
-        this.throughputMonitor = throughputMonitor;
+    public MessagesStorage(List<Host> hosts, LinkConfiguration configuration) {
+        int maxHostId = hosts.stream().mapToInt(Host::getId).max().orElse(0);
+        this.channelsByHostId = new PeerChannel[maxHostId + 1];
+        this.channels = new ArrayList<>(hosts.size());
+        hosts.forEach(host -> {
+            PeerChannel channel = new PeerChannel(host, configuration);
+            channelsByHostId[host.getId()] = channel;
+            channels.add(channel);
+        });
+
+        this.toTransmit = new ConcurrentLinkedQueue<>();
+        this.retransmissionTimers = new TimerWheel<>(RETRANSMISSION_TIMER_TICK_NANOS);
+        this.negativelyAcknowledgedMessages = new ConcurrentLinkedQueue<>();
+        this.receivedData = new ConcurrentLinkedQueue<>();
     }
 
-    public TransmissionParameters getTransmissionParametersFor(int hostId) {
-        return transmissionParametersForHosts.get(hostId);
+    public PeerChannel getChannel(int hostId) {
+        return channelsByHostId[hostId];
     }
 
-    private Map<Integer, TransmissionParameters> initializeTransmissionParameters(List<Host> hosts) {
-        Map<Integer, TransmissionParameters> transmissionParametersForHosts = new ConcurrentHashMap<>();
-        hosts.forEach(host -> transmissionParametersForHosts.put(host.getId(), new TransmissionParameters()));
-        return transmissionParametersForHosts;
+    public List<PeerChannel> getChannels() {
+        return Collections.unmodifiableList(channels);
     }
 
-    public Set<Message> getMessagesToSend() {
-        return toSend;
+    public TransmissionParameters getTransmissionParametersFor(int hostId) {
+        return getChannel(hostId).getTransmissionParameters();
     }
 
-    public Map<Message, TransmissionHistory> getUnacknowledgedMessages() {
-        return recentUnacknowledgedMessages;
+    public boolean hasMessagesWaitingToBeSentTo(int hostId) {
+        return !getChannel(hostId).getMessagesToSend().isEmpty();
     }
 
-    public Map<Message, TransmissionHistory> getStaleUnacknowledgedMessages() {
-        return staleUnacknowledgedMessages;
+    public TransmissionHistory getUnacknowledgedMessageHistory(Message message) {
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = channelOf(message).getUnacknowledgedMessages();
+        synchronized (unacknowledgedMessages) {
+            return unacknowledgedMessages.get(message.getData().getLinkSequenceNumber());
+        }
     }
 
-    public Set<Message> getPendingAcknowledgmentReplies() {
-        return pendingAcknowledgmentReplies;
+    /**
+     * Marks the retransmission under the same lock as the acknowledgments, so that they never read the send time and
+     * the number of retries of a message while it is being retransmitted.
+     *
+     * @return false if the message was acknowledged in the meantime and should not be retransmitted
+     */
+    public boolean markResending(Message message, TransmissionHistory history) {
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = channelOf(message).getUnacknowledgedMessages();
+        synchronized (unacknowledgedMessages) {
+            if (unacknowledgedMessages.get(message.getData().getLinkSequenceNumber()) != history) return false;
+            history.markSending();
+            return true;
+        }
     }
 
-    public Set<DatagramData> getReceivedData() {
-        return receivedData.keySet();
+    public boolean isStale(Message message) {
+        TransmissionHistory history = getUnacknowledgedMessageHistory(message);
+        return history != null && history.isStale();
+    }
+
+    public DatagramData pollReceivedData() {
+        return receivedData.poll();
     }
 
     public void queueForSending(Message message) {
-        toSend.add(message);
+        channelOf(message).getMessagesToSend().add(message);
     }
 
-    public boolean canSendMessageImmediately() {
-        return recentUnacknowledgedMessages.size() < throughputMonitor.getSendWindowSize();
+    public void queueForTransmission(Message message) {
+        toTransmit.add(message);
     }
 
-    public void addUnacknowledgedMessage(Message message, TransmissionHistory history) {
-        recentUnacknowledgedMessages.put(message, history);
+    public Message pollMessageToTransmit() {
+        return toTransmit.poll();
     }
 
-    public void addReceivedData(DatagramData data) {
-        receivedData.put(data, Instant.now());
+    public boolean canSendMessageImmediately(int receiverId) {
+        return getChannel(receiverId).getTransmissionParameters().hasSpaceInCongestionWindow();
     }
 
-    public void addAcknowledgmentToSend(Message ackReply) {
-        pendingAcknowledgmentReplies.add(ackReply);
+    /**
+     * @return true if the pacing rate towards the host allows sending another message now, consuming the allowance
+     */
+    public boolean tryAcquirePacingToken(int receiverId) {
+        PeerChannel channel = getChannel(receiverId);
+        double pacingRate = channel.getTransmissionParameters().getPacingRate();
+        return channel.getPacingTokenBucket().tryAcquire(pacingRate);
     }
 
-    public void removeFromToSend(Set<Message> messages) {
-        toSend.removeAll(messages);
+    public void addUnacknowledgedMessage(Message message, TransmissionHistory history) {
+        PeerChannel channel = channelOf(message);
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = channel.getUnacknowledgedMessages();
+        synchronized (unacknowledgedMessages) {
+            unacknowledgedMessages.put(message.getData().getLinkSequenceNumber(), history);
+        }
+        channel.getTransmissionParameters().recordSentMessage();
     }
 
-    public void removeFromPendingAcknowledgmentReplies(Set<Message> messages) {
-        pendingAcknowledgmentReplies.removeAll(messages);
+    /**
+     * Replaces the pending retransmission timer of the message, if any.
+     */
+    public void scheduleRetransmission(Message message, TransmissionHistory history, long timeoutNanos) {
+        retransmissionTimers.cancel(history.getRetransmissionTimer());
+        history.setRetransmissionTimer(retransmissionTimers.schedule(message, timeoutNanos));
     }
 
-    public void removeFromReceivedData(Set<DatagramData> data) {
-        data.forEach(receivedData::remove);
+    /**
+     * @return messages whose retransmission timer expired since the previous call
+     */
+    public List<Message> pollTimedOutMessages() {
+        return retransmissionTimers.advance();
     }
 
-    public boolean acknowledge(Message originalMessage, DatagramData ackData) {
-        Optional<TransmissionHistory> optHistory = removeFromUnacknowledged(originalMessage);
+    public void addReceivedData(DatagramData data) {
+        receivedData.add(data);
+    }
 
-        optHistory.ifPresent(history -> {
-            Instant receivedTime = receivedData.get(ackData);
+    /**
+     * Acknowledges in bulk all the messages sent to the acknowledging host which are covered by its cumulative
+     * or selective acknowledgment.
+     */
+    public void acknowledge(DatagramData ackData) {
+        PeerChannel channel = getChannel(ackData.getSenderHostId());
+        AcknowledgmentPayload acknowledgment = (AcknowledgmentPayload) ackData.getPayload();
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = channel.getUnacknowledgedMessages();
 
-            // Karn's algorithm for RTT samples (RFC 6298)
-            if (wasNotRetransmitted(history)) {
-                updateTransmissionParametersForReceiver(originalMessage, history, receivedTime);
+        AcknowledgmentOutcome outcome = new AcknowledgmentOutcome();
+        synchronized (unacknowledgedMessages) {
+            int cumulativelyAcknowledged = channel.getCumulativelyAcknowledged();
+            int newCumulativelyAcknowledged = acknowledgment.getCumulativeSequenceNumber();
+            for (int linkSequenceNumber = cumulativelyAcknowledged + 1;
+                 linkSequenceNumber <= newCumulativelyAcknowledged; linkSequenceNumber++) {
+                outcome.record(unacknowledgedMessages.remove(linkSequenceNumber));
             }
-        });
+            channel.setCumulativelyAcknowledged(Math.max(cumulativelyAcknowledged, newCumulativelyAcknowledged));
+
+            acknowledgment.forEachSelectivelyAcknowledged(linkSequenceNumber ->
+                    outcome.record(unacknowledgedMessages.remove(linkSequenceNumber))
+            );
+        }
 
-        return optHistory.isPresent();
+        TransmissionParameters transmissionParameters = channel.getTransmissionParameters();
+        long roundTripTimeMeasurementNanos = CongestionController.NO_MEASUREMENT;
+        if (outcome.hasSample) {
+            roundTripTimeMeasurementNanos = ackData.getReceiveTimeNanos() - outcome.latestSampleSendTimeNanos;
+            transmissionParameters.updateRetransmissionTimeout(roundTripTimeMeasurementNanos);
+        }
+        transmissionParameters.recordMessagesLeavingWindow(outcome.numberOfLeavingWindow);
+        if (outcome.numberOfAcknowledged > 0) {
+            transmissionParameters.recordAcknowledgment(outcome.numberOfAcknowledged, roundTripTimeMeasurementNanos);
+        }
     }
 
-    private boolean wasNotRetransmitted(TransmissionHistory history) {
+    /**
+     * Queues the still unacknowledged messages reported as missing by the receiver for immediate retransmission.
+     */
+    public void negativelyAcknowledge(DatagramData nackData) {
+        LongHashMap<TransmissionHistory> unacknowledgedMessages =
+                getChannel(nackData.getSenderHostId()).getUnacknowledgedMessages();
+        NegativeAcknowledgmentPayload negativeAcknowledgment = (NegativeAcknowledgmentPayload) nackData.getPayload();
+
+        synchronized (unacknowledgedMessages) {
+            negativeAcknowledgment.forEachMissing(linkSequenceNumber -> {
+                TransmissionHistory history = unacknowledgedMessages.get(linkSequenceNumber);
+                if (history != null) negativelyAcknowledgedMessages.add(history.getMessage());
+            });
+        }
+    }
+
+    public Message pollNegativelyAcknowledgedMessage() {
+        return negativelyAcknowledgedMessages.poll();
+    }
+
+    /**
+     * Filled in under the lock of the unacknowledged messages, as retransmissions update their histories.
+     */
+    private class AcknowledgmentOutcome {
+
+        private boolean hasSample = false;
+        private long latestSampleSendTimeNanos = 0;
+        private int numberOfAcknowledged = 0;
+        private int numberOfLeavingWindow = 0;
+
+        private void record(TransmissionHistory history) {
+            if (history == null) return; // acknowledged before
+
+            if (!history.isStale()) numberOfLeavingWindow++;
+            retransmissionTimers.cancel(history.getRetransmissionTimer());
+            numberOfAcknowledged++;
+
+            // Karn's algorithm for RTT samples (RFC 6298), one sample per acknowledgment from the latest sent message
+            if (wasNotRetransmitted(history) && (!hasSample
+                    || history.getSendTimeNanos() - latestSampleSendTimeNanos > 0)) {
+                hasSample = true;
+                latestSampleSendTimeNanos = history.getSendTimeNanos();
+            }
+        }
+    }
+
+    private static boolean wasNotRetransmitted(TransmissionHistory history) {
         return history.getRetries() == 0;
     }
 
-    private synchronized void updateTransmissionParametersForReceiver(Message originalMessage, TransmissionHistory history,
-                                                          Instant receivedTime) {
-        Host receiver = originalMessage.getReceiver();
-        Duration roundTripTimeMeasurement = Duration.between(history.getSendTime(), receivedTime);
-        TransmissionParameters transmissionParameters = transmissionParametersForHosts.get(receiver.getId());
-        transmissionParameters.updateRetransmissionTimeout(roundTripTimeMeasurement);
+    /**
+     * Queues all the messages the host has not acknowledged for immediate retransmission.
+     */
+    public void queueUnacknowledgedForRetransmission(int hostId) {
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = getChannel(hostId).getUnacknowledgedMessages();
+        synchronized (unacknowledgedMessages) {
+            unacknowledgedMessages.forEach((linkSequenceNumber, history) ->
+                    negativelyAcknowledgedMessages.add(history.getMessage())
+            );
+        }
     }
 
-    private Optional<TransmissionHistory> removeFromUnacknowledged(Message originalMessage) {
-        TransmissionHistory history = recentUnacknowledgedMessages.remove(originalMessage);
-        if (history == null) history = staleUnacknowledgedMessages.remove(originalMessage);
-        return Optional.ofNullable(history);
+    public void moveFromRecentToStale(Message newStaleMessage) {
+        PeerChannel channel = channelOf(newStaleMessage);
+        LongHashMap<TransmissionHistory> unacknowledgedMessages = channel.getUnacknowledgedMessages();
+        // marked under the lock, so that the message leaves the window either here or when acknowledged
+        synchronized (unacknowledgedMessages) {
+            TransmissionHistory history = unacknowledgedMessages.get(newStaleMessage.getData().getLinkSequenceNumber());
+            if (history == null || history.isStale()) return;
+            history.markStale();
+        }
+        channel.getTransmissionParameters().recordMessagesLeavingWindow(1);
     }
 
-    public void moveFromRecentToStale(Set<Message> newStaleMessages) {
-        newStaleMessages.forEach(message -> {
-            TransmissionHistory history = recentUnacknowledgedMessages.remove(message);
-            if (history != null) {
-                staleUnacknowledgedMessages.put(message, history);
-            }
-        });
+    private PeerChannel channelOf(Message message) {
+        return getChannel(message.getReceiver().getId());
     }
 }
@@ -0,0 +1,134 @@
+package cs451.abstraction.link;
+
+import cs451.abstraction.LongHashMap;
+import cs451.abstraction.link.message.Message;
+import cs451.abstraction.link.message.NegativeAcknowledgmentPayload;
+import cs451.abstraction.link.message.TransmissionHistory;
+import cs451.parser.Host;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>All the link state kept for a single peer host: its resolved address, the messages waiting for its send window,
+ * the messages sent to it and not acknowledged yet, its round-trip time and congestion state, and the sequence numbers
+ * received from it. One instance exists per host, looked up by host identifier in {@link MessagesStorage}, so the
+ * hot paths touch a single object per peer rather than a map per kind of state.</p>
+ */
+public class PeerChannel {
+
+    final private static long NO_PENDING_ACKNOWLEDGMENT = Long.MIN_VALUE;
+
+    final private Host host;
+    final private InetSocketAddress address;
+    final private TransmissionParameters transmissionParameters;
+    final private TokenBucket pacingTokenBucket;
+    final private AtomicInteger lastLinkSequenceNumber;
+    final private Queue<Message> toSend;
+    // sent without link sequence numbers, only the latest message queued under a key is kept
+    final private Map<Integer, Message> unsequencedToSend;
+    // keyed by link sequence number, guarded by its own monitor
+    final private LongHashMap<TransmissionHistory> unacknowledgedMessages;
+    // guarded by the monitor of unacknowledgedMessages
+    private int cumulativelyAcknowledged;
+    final private ReceivedSequenceTracker receivedSequences;
+    // System.nanoTime() of the reception of the oldest message not acknowledged yet
+    final private AtomicLong acknowledgmentPendingSinceNanos;
+    // accessed only by the sending thread
+    private boolean hasSentSinceHeartbeat;
+
+    public PeerChannel(Host host, LinkConfiguration configuration) {
+        this.host = host;
+        this.address = new InetSocketAddress(host.getIp(), host.getPort());
+        this.transmissionParameters = new TransmissionParameters(configuration.getCongestionControlAlgorithm().create());
+        this.pacingTokenBucket = new TokenBucket(configuration.getPacingMaxBurst());
+        this.lastLinkSequenceNumber = new AtomicInteger(0);
+        this.toSend = new ConcurrentLinkedQueue<>();
+        this.unsequencedToSend = new ConcurrentHashMap<>();
+        this.unacknowledgedMessages = new LongHashMap<>();
+        this.cumulativelyAcknowledged = 0;
+        this.receivedSequences = new ReceivedSequenceTracker(NegativeAcknowledgmentPayload.getMaxRanges(
+                DatagramPacker.getMaxRecordSize(configuration.getMaxDatagramSize())));
+        this.acknowledgmentPendingSinceNanos = new AtomicLong(NO_PENDING_ACKNOWLEDGMENT);
+        this.hasSentSinceHeartbeat = false;
+    }
+
+    public Host getHost() {
+        return host;
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public TransmissionParameters getTransmissionParameters() {
+        return transmissionParameters;
+    }
+
+    public TokenBucket getPacingTokenBucket() {
+        return pacingTokenBucket;
+    }
+
+    public int nextLinkSequenceNumber() {
+        return lastLinkSequenceNumber.incrementAndGet();
+    }
+
+    public Queue<Message> getMessagesToSend() {
+        return toSend;
+    }
+
+    public Map<Integer, Message> getUnsequencedMessagesToSend() {
+        return unsequencedToSend;
+    }
+
+    LongHashMap<TransmissionHistory> getUnacknowledgedMessages() {
+        return unacknowledgedMessages;
+    }
+
+    int getCumulativelyAcknowledged() {
+        return cumulativelyAcknowledged;
+    }
+
+    void setCumulativelyAcknowledged(int cumulativelyAcknowledged) {
+        this.cumulativelyAcknowledged = cumulativelyAcknowledged;
+    }
+
+    public ReceivedSequenceTracker getReceivedSequences() {
+        return receivedSequences;
+    }
+
+    public void markAcknowledgmentPending(long receiveTimeNanos) {
+        acknowledgmentPendingSinceNanos.compareAndSet(NO_PENDING_ACKNOWLEDGMENT, receiveTimeNanos);
+    }
+
+    public boolean isAcknowledgmentDue(long nowNanos, long acknowledgmentDelayNanos) {
+        long pendingSinceNanos = acknowledgmentPendingSinceNanos.get();
+        return pendingSinceNanos != NO_PENDING_ACKNOWLEDGMENT && nowNanos - pendingSinceNanos >= acknowledgmentDelayNanos;
+    }
+
+    /**
+     * @return true if an acknowledgment was pending, clearing it before the acknowledgment is created so that no
+     * concurrently recorded message is left unacknowledged
+     */
+    public boolean takeAcknowledgmentPending() {
+        return acknowledgmentPendingSinceNanos.getAndSet(NO_PENDING_ACKNOWLEDGMENT) != NO_PENDING_ACKNOWLEDGMENT;
+    }
+
+    void markSent() {
+        hasSentSinceHeartbeat = true;
+    }
+
+    /**
+     * @return true if nothing was sent to the host since the previous call, clearing the sent mark
+     */
+    boolean takeHeartbeatDue() {
+        boolean isHeartbeatDue = !hasSentSinceHeartbeat;
+        hasSentSinceHeartbeat = false;
+        return isHeartbeatDue;
+    }
+}
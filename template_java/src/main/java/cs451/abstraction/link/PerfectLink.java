@@ -1,18 +1,16 @@
 package cs451.abstraction.link;
 
+import cs451.abstraction.FailureDetector;
+import cs451.abstraction.IdleStrategy;
 import cs451.abstraction.Notifier;
 import cs451.abstraction.Observer;
-import cs451.abstraction.link.message.DatagramData;
 import cs451.abstraction.link.message.Message;
 import cs451.abstraction.link.message.MessageFactory;
 import cs451.abstraction.link.message.PayloadFactory;
 import cs451.parser.Host;
 
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>{@link PerfectLink} together with {@link Sender}, {@link Receiver} and {@link TransmissionParameters} utilizing
@@ -26,85 +24,112 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class PerfectLink extends Notifier implements Observer {
 
-    final private static int SENDING_SLEEP_TIME = 100;
-    final private static int INITIAL_SEND_WINDOW_SIZE = 500;
-
+    final private FailureDetector failureDetector;
     final private Sender sender;
     final private Receiver receiver;
-    final private ThroughputMonitor throughputMonitor;
-    final private Set<DatagramData> delivered;
 
+    final private IdleStrategy sendingIdleStrategy;
+    final private IdleStrategy triagingIdleStrategy;
     final private List<Thread> threads;
 
-    public PerfectLink(Host host, List<Host> allHosts, PayloadFactory payloadFactory, MessageFactory messageFactory) {
-        throughputMonitor = new ThroughputMonitor(INITIAL_SEND_WINDOW_SIZE);
-        MessagesStorage storage = new MessagesStorage(allHosts, throughputMonitor);
+    public PerfectLink(Host host, List<Host> allHosts, PayloadFactory payloadFactory, MessageFactory messageFactory,
+                       LinkConfiguration configuration) {
+        MessagesStorage storage = new MessagesStorage(allHosts, configuration);
+        BufferPool bufferPool = new BufferPool(configuration.getMaxDatagramSize());
 
-        this.sender = new Sender(storage);
-        this.receiver = new Receiver(host, storage, payloadFactory, messageFactory);
+        this.failureDetector = new FailureDetector(host.getId(), allHosts, configuration.getSuspicionTimeout().toNanos());
+        this.sender = new Sender(host.getId(), storage, messageFactory, failureDetector, bufferPool, configuration);
+        this.receiver = new Receiver(host, storage, payloadFactory, messageFactory, failureDetector, bufferPool,
+                configuration);
         receiver.registerDeliveryObserver(this);
-        this.delivered = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        failureDetector.registerObserver(sender);
+
+        this.sendingIdleStrategy = configuration.createIdleStrategy();
+        this.triagingIdleStrategy = configuration.createIdleStrategy();
 
         this.threads = new LinkedList<>();
     }
 
+    public FailureDetector getFailureDetector() {
+        return failureDetector;
+    }
+
     public void send(Message message) {
-        boolean wasSent = sender.send(message);
-
-        while (!wasSent) {
-            try {
-                Thread.sleep(SENDING_SLEEP_TIME);
-                wasSent = sender.send(message);
-            } catch (InterruptedException exc) {
-                return;
-            }
-        }
+        sender.send(message);
+        sendingIdleStrategy.signal();
     }
 
     public void queueForSending(Message message) {
         sender.queueForSending(message);
+        sendingIdleStrategy.signal();
+    }
+
+    /**
+     * Sends the message at most once, without any delivery guarantee: it may be lost, duplicated or reordered, and it
+     * is dropped if another message is queued under the same key for the same receiver before it is sent. Meant for
+     * periodic state of which only the latest version matters.
+     */
+    public void sendUnsequenced(int key, Message message) {
+        sender.queueUnsequencedForSending(key, message);
+        sendingIdleStrategy.signal();
     }
 
+    /**
+     * Duplicates are already suppressed by the {@link Receiver} using the per-sender {@link ReceivedSequenceTracker}.
+     */
     @Override
     public void notifyOfDelivery(Message message) {
-        DatagramData data = message.getData();
-        if (!delivered.contains(data)) {
-            delivered.add(data);
-            emitDeliverEvent(message);
-        }
-        throughputMonitor.recordReceivedMessage();
+        emitDeliverEvent(message);
     }
 
     public void startThreads() {
         Thread sendingThread = new Thread(this::runSendingAndAcknowledging);
         Thread receivingThread = new Thread(this::runReceivingPackets);
         Thread triagingThread = new Thread(this::runTriagingReceivedPackets);
-        Thread throughputMonitoringThread = new Thread(throughputMonitor::runMonitoring);
-        threads.addAll(List.of(sendingThread, receivingThread, triagingThread, throughputMonitoringThread));
+        threads.addAll(List.of(sendingThread, receivingThread, triagingThread));
         threads.forEach(Thread::start);
     }
 
+    /**
+     * The receiving transport is closed as well, as interrupting the receiving thread is not enough to wake it up with
+     * {@link TransportType#DATAGRAM_SOCKET}.
+     */
     public void stopThreads() {
         threads.forEach(Thread::interrupt);
+        receiver.close();
     }
 
     private void runSendingAndAcknowledging() {
         while (!Thread.interrupted()) {
-            sender.sendPendingMessages();
-            sender.retransmitUnacknowledgedMessages();
-            sender.processPendingAcknowledgmentReplies();
+            int workCount = sender.sendPendingMessages();
+            workCount += sender.sendUnsequencedMessages();
+            workCount += sender.retransmitUnacknowledgedMessages();
+            workCount += sender.processPendingAcknowledgmentReplies();
+            workCount += sender.sendHeartbeats();
+            sender.flushPackedMessages();
+            workCount += failureDetector.checkTimeouts(System.nanoTime());
+            sendingIdleStrategy.idle(workCount);
         }
     }
 
+    /**
+     * Blocks on the transport, so it needs no idle strategy.
+     */
     private void runReceivingPackets() {
         while (!Thread.interrupted()) {
             receiver.receive();
+            triagingIdleStrategy.signal();
         }
     }
 
     private void runTriagingReceivedPackets() {
         while (!Thread.interrupted()) {
-            receiver.processReceivedPackets();
+            int workCount = receiver.processReceivedPackets();
+            if (workCount > 0) {
+                // triaging queues acknowledgment replies and frees space in the send windows
+                sendingIdleStrategy.signal();
+            }
+            triagingIdleStrategy.idle(workCount);
         }
     }
 }
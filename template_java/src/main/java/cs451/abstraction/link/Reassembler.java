@@ -0,0 +1,88 @@
+package cs451.abstraction.link;
+
+import cs451.abstraction.LongHashMap;
+import cs451.abstraction.link.message.DatagramData;
+import cs451.abstraction.link.message.DatagramDataFactory;
+import cs451.abstraction.link.message.FragmentPayload;
+import cs451.abstraction.link.message.MessageId;
+
+/**
+ * <p>Collects the fragments of messages split by the {@link Sender} and rebuilds the original data once all the
+ * fragments of a message have arrived. Duplicate fragments never reach it, as they are already suppressed by the
+ * {@link ReceivedSequenceTracker} of their sender.</p>
+ *
+ * <p>The partial messages are never evicted, not even once the failure detector suspects or abandons their sender:
+ * their fragments received so far were already acknowledged and would never be sent again, so a message of a sender
+ * wrongly taken for crashed, e.g. one which was only stopped for a while, would be lost. A sender which crashed
+ * mid-message leaves behind the fragments of the messages it had in flight, a fixed amount which does not grow for
+ * the rest of the run.</p>
+ *
+ * <p>Not thread-safe, meant to be used only by the triaging thread.</p>
+ */
+public class Reassembler {
+
+    final private DatagramDataFactory datagramDataFactory;
+    // keyed by MessageId.of(sender, fragmented message identifier)
+    final private LongHashMap<PartialMessage> partialMessages;
+
+    public Reassembler(DatagramDataFactory datagramDataFactory) {
+        this.datagramDataFactory = datagramDataFactory;
+        this.partialMessages = new LongHashMap<>();
+    }
+
+    /**
+     * @return the reassembled data if this was the last missing fragment of its message, null otherwise
+     */
+    public DatagramData addFragment(DatagramData fragmentData) {
+        FragmentPayload fragment = (FragmentPayload) fragmentData.getPayload();
+        long key = MessageId.of(fragmentData.getSenderHostId(), fragment.getFragmentedMessageId());
+
+        PartialMessage partialMessage = partialMessages.get(key);
+        if (partialMessage == null) {
+            partialMessage = new PartialMessage(fragment.getNumberOfFragments());
+            partialMessages.put(key, partialMessage);
+        }
+        partialMessage.add(fragment);
+
+        if (!partialMessage.isComplete()) return null;
+        partialMessages.remove(key);
+        return datagramDataFactory.createReassembled(
+                fragmentData.getSenderHostId(), fragmentData.getReceiverHostId(), partialMessage.concatenate()
+        );
+    }
+
+    private static class PartialMessage {
+
+        final private FragmentPayload[] fragments;
+        private int numberOfReceived;
+        private int totalLength;
+
+        private PartialMessage(int numberOfFragments) {
+            this.fragments = new FragmentPayload[numberOfFragments];
+            this.numberOfReceived = 0;
+            this.totalLength = 0;
+        }
+
+        private void add(FragmentPayload fragment) {
+            int index = fragment.getFragmentIndex();
+            if (fragments[index] != null) return;
+            fragments[index] = fragment;
+            numberOfReceived++;
+            totalLength += fragment.getLength();
+        }
+
+        private boolean isComplete() {
+            return numberOfReceived == fragments.length;
+        }
+
+        private byte[] concatenate() {
+            byte[] encodedPayload = new byte[totalLength];
+            int offset = 0;
+            for (FragmentPayload fragment : fragments) {
+                fragment.copyTo(encodedPayload, offset);
+                offset += fragment.getLength();
+            }
+            return encodedPayload;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package cs451.abstraction.link;
+
+import cs451.abstraction.link.message.AcknowledgmentPayload;
+import cs451.abstraction.link.message.NegativeAcknowledgmentPayload;
+
+import java.util.Arrays;
+
+/**
+ * <p>Keeps track of sequence numbers received from a single host as a contiguous watermark, below which every
+ * sequence number was received, and a sparse bitmap of the ones received out of order above it. It serves both for
+ * duplicate suppression and for summarizing the received messages as a cumulative acknowledgment with a selective
+ * acknowledgment bitmap.</p>
+ *
+ * <p>The bitmap is a ring indexed by the sequence number modulo its capacity, so it only has to span the sequence
+ * numbers in flight and the memory stays constant however long the run is. It grows by doubling when needed, and
+ * shrinks by halving once the sequence numbers in flight span less than a quarter of it.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://tools.ietf.org/html/rfc4303#section-3.4.3">RFC 4303 - Sequence Number Verification</a></li>
+ *     <li><a href="https://tools.ietf.org/html/rfc6479">RFC 6479 - IPsec Anti-Replay Algorithm without Bit Shifting</a></li>
+ * </ul>
+ * </p>
+ */
+public class ReceivedSequenceTracker {
+
+    final private static int MAX_SELECTIVE_BITMAP_WORDS = 16;
+    final private static int INITIAL_BITMAP_WORDS = 4;
+    // sequence numbers received past a gap before it is reported as loss rather than reordering, as in TCP
+    final private static int REORDERING_THRESHOLD = 3;
+
+    private int cumulativeSequenceNumber;
+    private int highestSequenceNumber;
+    private long[] outOfOrderBitmap;
+    private int negativelyAcknowledgedUpTo;
+    final private int maxNegativeAcknowledgmentRanges;
+
+    /**
+     * @return size of the largest acknowledgment created by any tracker
+     */
+    public static int getMaxAcknowledgmentSize() {
+        return AcknowledgmentPayload.getSizeInBytes(MAX_SELECTIVE_BITMAP_WORDS);
+    }
+
+    /**
+     * Creates a tracker which only summarizes the received sequence numbers, never reporting gaps.
+     */
+    public ReceivedSequenceTracker() {
+        this(0);
+    }
+
+    /**
+     * @param maxNegativeAcknowledgmentRanges maximum number of missing ranges reported at once, so that a negative
+     *                                        acknowledgment fits in a single record
+     */
+    public ReceivedSequenceTracker(int maxNegativeAcknowledgmentRanges) {
+        this.cumulativeSequenceNumber = 0;
+        this.highestSequenceNumber = 0;
+        this.outOfOrderBitmap = new long[INITIAL_BITMAP_WORDS];
+        this.negativelyAcknowledgedUpTo = 0;
+        this.maxNegativeAcknowledgmentRanges = maxNegativeAcknowledgmentRanges;
+    }
+
+    /**
+     * @return true if the sequence number was received for the first time
+     */
+    public synchronized boolean record(int sequenceNumber) {
+        if (sequenceNumber <= cumulativeSequenceNumber) {
+            return false;
+        }
+
+        ensureCapacityFor(sequenceNumber);
+        if (isSet(sequenceNumber)) {
+            return false;
+        }
+
+        highestSequenceNumber = Math.max(highestSequenceNumber, sequenceNumber);
+        if (sequenceNumber == cumulativeSequenceNumber + 1) {
+            cumulativeSequenceNumber++;
+            while (cumulativeSequenceNumber < highestSequenceNumber && isSet(cumulativeSequenceNumber + 1)) {
+                clear(cumulativeSequenceNumber + 1);
+                cumulativeSequenceNumber++;
+            }
+            shrinkIfMostlyReceived();
+        } else {
+            set(sequenceNumber);
+        }
+        return true;
+    }
+
+    public synchronized AcknowledgmentPayload createAcknowledgment() {
+        int span = highestSequenceNumber - cumulativeSequenceNumber;
+        if (span <= 0) {
+            return new AcknowledgmentPayload(cumulativeSequenceNumber, new long[0]);
+        }
+
+        int words = Math.min((span + Long.SIZE - 1) / Long.SIZE, MAX_SELECTIVE_BITMAP_WORDS);
+        int reportedSpan = Math.min(span, words * Long.SIZE);
+        long[] selectiveBitmap = new long[words];
+
+        for (int offset = 0; offset < reportedSpan; offset++) {
+            if (isSet(cumulativeSequenceNumber + 1 + offset)) {
+                selectiveBitmap[offset / Long.SIZE] |= 1L << (offset % Long.SIZE);
+            }
+        }
+        return new AcknowledgmentPayload(cumulativeSequenceNumber, selectiveBitmap);
+    }
+
+    /**
+     * Reports every gap only once, when at least {@link #REORDERING_THRESHOLD} greater sequence numbers were received.
+     * A lost retransmission is then recovered by the retransmission timer of the sender.
+     *
+     * @return missing ranges not reported before, null if there are none
+     */
+    public synchronized NegativeAcknowledgmentPayload createNegativeAcknowledgment() {
+        int from = Math.max(cumulativeSequenceNumber, negativelyAcknowledgedUpTo) + 1;
+        int to = highestSequenceNumber - REORDERING_THRESHOLD;
+        if (from > to) return null;
+
+        int[] missingRanges = new int[2 * maxNegativeAcknowledgmentRanges];
+        int entries = 0;
+        int sequenceNumber = from;
+        while (sequenceNumber <= to && entries < missingRanges.length) {
+            if (isSet(sequenceNumber)) {
+                sequenceNumber++;
+                continue;
+            }
+            missingRanges[entries++] = sequenceNumber;
+            while (sequenceNumber <= to && !isSet(sequenceNumber)) {
+                sequenceNumber++;
+            }
+            missingRanges[entries++] = sequenceNumber - 1;
+        }
+
+        negativelyAcknowledgedUpTo = sequenceNumber - 1;
+        if (entries == 0) return null;
+        return new NegativeAcknowledgmentPayload(Arrays.copyOf(missingRanges, entries));
+    }
+
+    private int capacity() {
+        return outOfOrderBitmap.length * Long.SIZE;
+    }
+
+    /**
+     * Doubles the ring until it spans the sequence number.
+     */
+    private void ensureCapacityFor(int sequenceNumber) {
+        if (sequenceNumber - cumulativeSequenceNumber <= capacity()) return;
+
+        int newWords = outOfOrderBitmap.length;
+        while (sequenceNumber - cumulativeSequenceNumber > newWords * Long.SIZE) {
+            newWords *= 2;
+        }
+        resize(newWords);
+    }
+
+    /**
+     * Halves the ring while the sequence numbers in flight span less than a quarter of it, so that it does not grow
+     * back right away.
+     */
+    private void shrinkIfMostlyReceived() {
+        int span = highestSequenceNumber - cumulativeSequenceNumber;
+        if (outOfOrderBitmap.length <= INITIAL_BITMAP_WORDS || span >= capacity() / 4) return;
+
+        int newWords = outOfOrderBitmap.length;
+        while (newWords > INITIAL_BITMAP_WORDS && span < newWords * Long.SIZE / 4) {
+            newWords /= 2;
+        }
+        resize(newWords);
+    }
+
+    /**
+     * Moves the bits received out of order so far to a ring of the new number of words.
+     */
+    private void resize(int newWords) {
+        long[] oldBitmap = outOfOrderBitmap;
+        int oldMask = capacity() - 1;
+        outOfOrderBitmap = new long[newWords];
+        for (int received = cumulativeSequenceNumber + 1; received <= highestSequenceNumber; received++) {
+            if ((oldBitmap[(received & oldMask) >>> 6] & (1L << received)) != 0) {
+                set(received);
+            }
+        }
+    }
+
+    private boolean isSet(int sequenceNumber) {
+        int index = sequenceNumber & (capacity() - 1);
+        return (outOfOrderBitmap[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(int sequenceNumber) {
+        int index = sequenceNumber & (capacity() - 1);
+        outOfOrderBitmap[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(int sequenceNumber) {
+        int index = sequenceNumber & (capacity() - 1);
+        outOfOrderBitmap[index >>> 6] &= ~(1L << index);
+    }
+}
@@ -1,40 +1,44 @@
 package cs451.abstraction.link;
 
+import cs451.abstraction.FailureDetector;
 import cs451.abstraction.Notifier;
 import cs451.abstraction.link.message.*;
 import cs451.parser.Host;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.List;
 
 public class Receiver extends Notifier {
 
-    final private static int MAX_BYTES_IN_PACKET = 256; // FIXME: arbitrary
-
-    final private DatagramSocket receivingSocket;
+    final private DatagramTransport receivingTransport;
+    final private BufferPool bufferPool;
     final private MessagesStorage storage;
     final private DatagramDataFactory datagramDataFactory;
     final private MessageFactory messageFactory;
+    final private FailureDetector failureDetector;
+    final private Reassembler reassembler;
 
     public Receiver(Host host, MessagesStorage storage, PayloadFactory payloadFactory,
-                    MessageFactory messageFactory) {
+                    MessageFactory messageFactory, FailureDetector failureDetector, BufferPool bufferPool,
+                    LinkConfiguration configuration) {
         super();
         this.storage = storage;
-        this.receivingSocket = createReceivingSocket(host);
+        this.receivingTransport = createReceivingTransport(host, configuration);
+        this.bufferPool = bufferPool;
         this.datagramDataFactory = new DatagramDataFactory(payloadFactory);
         this.messageFactory = messageFactory;
+        this.failureDetector = failureDetector;
+        this.reassembler = new Reassembler(datagramDataFactory);
     }
 
-    private DatagramSocket createReceivingSocket(Host host) {
+    private DatagramTransport createReceivingTransport(Host host, LinkConfiguration configuration) {
         InetSocketAddress socketAddress = new InetSocketAddress(host.getIp(), host.getPort());
         try {
-            return new DatagramSocket(socketAddress);
-        } catch (SocketException exc) {
+            return configuration.getTransportType().open(socketAddress, configuration.getMaxDatagramSize());
+        } catch (IOException exc) {
             System.err.println("Unable to create receiving UDP socket");
             exc.printStackTrace();
             throw new RuntimeException(exc);
@@ -42,49 +46,87 @@ public class Receiver extends Notifier {
     }
 
     public void receive() {
-        DatagramPacket receivedPacket = doReceive();
-        DatagramData data = datagramDataFactory.create(receivedPacket);
-        storage.addReceivedData(data);
+        ByteBuffer receivedDatagram = bufferPool.acquire();
+        if (doReceive(receivedDatagram)) {
+            long receiveTimeNanos = System.nanoTime();
+            // decoding copies everything out of the buffer, so it can be reused right away
+            List<DatagramData> packedData = datagramDataFactory.createAll(receivedDatagram, receiveTimeNanos);
+            packedData.forEach(storage::addReceivedData);
+        }
+        bufferPool.release(receivedDatagram);
     }
 
-    public void processReceivedPackets() {
-        Set<DatagramData> toRemoveFromReceived = new HashSet<>();
-
-        storage.getReceivedData().forEach(data -> {
+    /**
+     * @return number of processed packets
+     */
+    public int processReceivedPackets() {
+        int numberOfProcessed = 0;
+        DatagramData data;
+        while ((data = storage.pollReceivedData()) != null) {
             DatagramDataType dataType = data.getDataType();
+            failureDetector.recordHeardFrom(data.getSenderHostId(), data.getReceiveTimeNanos());
 
             if (dataType.equals(DatagramDataType.PAYLOAD)) {
-                queueAcknowledgmentReply(data);
+                boolean isReceivedFirstTime = queueAcknowledgmentReply(data);
+                if (isReceivedFirstTime) {
+                    emitDeliverEvent(messageFactory.createReceived(data));
+                }
+            } else if (dataType.equals(DatagramDataType.SEEN)) {
+                // unsequenced, neither acknowledged nor deduplicated
                 emitDeliverEvent(messageFactory.createReceived(data));
-                toRemoveFromReceived.add(data);
             } else if (dataType.equals(DatagramDataType.ACK)) {
-                boolean acknowledged = acknowledge(data);
-                if (acknowledged) toRemoveFromReceived.add(data);
+                storage.acknowledge(data);
+            } else if (dataType.equals(DatagramDataType.NACK)) {
+                storage.negativelyAcknowledge(data);
+            } else if (dataType.equals(DatagramDataType.FRAGMENT)) {
+                boolean isReceivedFirstTime = queueAcknowledgmentReply(data);
+                DatagramData reassembledData = isReceivedFirstTime ? reassembler.addFragment(data) : null;
+                if (reassembledData != null) {
+                    emitDeliverEvent(messageFactory.createReceived(reassembledData));
+                }
             }
-        });
-
-        storage.removeFromReceivedData(toRemoveFromReceived);
+            numberOfProcessed++;
+        }
+        return numberOfProcessed;
     }
 
-    private void queueAcknowledgmentReply(DatagramData data) {
-        DatagramData ackData = DatagramData.convertReceivedToAcknowledgment(data);
-        Message ackReply = messageFactory.createToSend(ackData);
-        storage.addAcknowledgmentToSend(ackReply);
+    /**
+     * Duplicates are acknowledged as well, as the previous acknowledgment might have been lost.
+     *
+     * @return true if the data was received for the first time
+     */
+    private boolean queueAcknowledgmentReply(DatagramData data) {
+        int senderId = data.getSenderHostId();
+        PeerChannel channel = storage.getChannel(senderId);
+        boolean isReceivedFirstTime = channel.getReceivedSequences().record(data.getLinkSequenceNumber());
+        channel.markAcknowledgmentPending(data.getReceiveTimeNanos());
+        return isReceivedFirstTime;
     }
 
-    private boolean acknowledge(DatagramData ackData) {
-        DatagramData originalData = DatagramData.convertAcknowledgmentToOriginal(ackData);
-        Message originalMessage = messageFactory.createToSend(originalData);
-        return storage.acknowledge(originalMessage, ackData);
+    /**
+     * Wakes up the receiving thread if it is blocked on the transport, to be called once it was interrupted.
+     */
+    public void close() {
+        try {
+            receivingTransport.close();
+        } catch (IOException exc) {
+            System.err.println("Unable to close receiving UDP socket");
+            exc.printStackTrace();
+        }
     }
 
-    private DatagramPacket doReceive() {
+    private boolean doReceive(ByteBuffer buffer) {
         try {
-            byte[] buffer = new byte[MAX_BYTES_IN_PACKET];
-            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-            receivingSocket.receive(packet);
-            return packet;
+            receivingTransport.receive(buffer);
+            return true;
+        } catch (ClosedByInterruptException exc) {
+            // interrupted while blocked on the channel when stopping the link
+            Thread.currentThread().interrupt();
+            return false;
         } catch (IOException exc) {
+            // the transport was closed after interrupting the thread when stopping the link
+            if (Thread.currentThread().isInterrupted()) return false;
+
             System.err.println("Unable to receive a UDP packet due to I/O exception");
             exc.printStackTrace();
             throw new RuntimeException(exc);
@@ -1,17 +1,20 @@
 package cs451.abstraction.link;
 
-import cs451.abstraction.link.message.Message;
-import cs451.abstraction.link.message.TransmissionHistory;
+import cs451.abstraction.FailureDetectionObserver;
+import cs451.abstraction.FailureDetector;
+import cs451.abstraction.link.message.*;
 import cs451.parser.Host;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.time.Duration;
-import java.time.Instant;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>Used resources:
@@ -25,47 +28,158 @@ import java.util.Set;
  * </ul>
  * </p>
  */
-public class Sender {
+public class Sender implements FailureDetectionObserver {
 
     final private static int MAX_RETRIES_IN_WINDOW = 2;
 
+    final private int hostId;
     final private MessagesStorage storage;
-    final private DatagramSocket sendingSocket;
+    final private MessageFactory messageFactory;
+    final private FailureDetector failureDetector;
+    final private DatagramTransport sendingTransport;
+    final private DatagramPacker packer;
+    final private boolean isPacingEnabled;
+    final private long acknowledgmentDelayNanos;
+    final private long heartbeatIntervalNanos;
+    private long lastHeartbeatTimeNanos;
+    // only accessed by the sending thread
+    final private Set<Integer> abandonedReceivers;
+    final private int maxRecordSize;
+    final private AtomicInteger lastFragmentedMessageId;
 
-    public Sender(MessagesStorage storage)
+    public Sender(int hostId, MessagesStorage storage, MessageFactory messageFactory, FailureDetector failureDetector,
+                  BufferPool bufferPool, LinkConfiguration configuration)
     {
+        this.hostId = hostId;
         this.storage = storage;
-        this.sendingSocket = createSendingSocket();
+        this.messageFactory = messageFactory;
+        this.failureDetector = failureDetector;
+        this.sendingTransport = createSendingTransport(configuration);
+        this.packer = new DatagramPacker(configuration, storage, bufferPool, this::doSend);
+        this.isPacingEnabled = configuration.isPacingEnabled();
+        this.acknowledgmentDelayNanos = configuration.getAcknowledgmentDelay().toNanos();
+        this.heartbeatIntervalNanos = configuration.getHeartbeatInterval().toNanos();
+        this.lastHeartbeatTimeNanos = System.nanoTime();
+        this.abandonedReceivers = new HashSet<>();
+        this.maxRecordSize = DatagramPacker.getMaxRecordSize(configuration.getMaxDatagramSize());
+        this.lastFragmentedMessageId = new AtomicInteger(0);
     }
 
-    private DatagramSocket createSendingSocket() {
+    private DatagramTransport createSendingTransport(LinkConfiguration configuration) {
         try {
-            return new DatagramSocket();
-        } catch (SocketException exc) {
+            return configuration.getTransportType().open(null, configuration.getMaxDatagramSize());
+        } catch (IOException exc) {
             System.err.println("Unable to create sending UDP socket");
             exc.printStackTrace();
             throw new RuntimeException(exc);
         }
     }
 
-    public boolean send(Message message) {
-        if (storage.canSendMessageImmediately()) {
-            TransmissionHistory history = new TransmissionHistory();
-            doSend(message);
-            history.markSending();
-            storage.addUnacknowledgedMessage(message, history);
-            return true;
+    /**
+     * Accepts the message into the send window of its receiver, or queues it behind the messages already waiting for
+     * that window, so a slow receiver never blocks sending to the others.
+     */
+    public void send(Message message) {
+        int receiverId = message.getReceiver().getId();
+        for (Message fragment : fragment(message)) {
+            if (!storage.hasMessagesWaitingToBeSentTo(receiverId) && canAcceptIntoWindow(receiverId)) {
+                acceptIntoWindow(fragment);
+            } else {
+                storage.queueForSending(fragment);
+            }
         }
-        return false;
+    }
+
+    /**
+     * Splits a message too large for a single datagram into fragments of its encoded payload. The fragments are sent
+     * as independent messages, so a lost fragment is retransmitted alone.
+     */
+    private List<Message> fragment(Message message) {
+        DatagramData data = message.getData();
+        if (data.getSizeInBytes() <= maxRecordSize) {
+            return List.of(message);
+        }
+
+        byte[] encodedPayload = data.getPayloadBytes();
+        int maxFragmentSize = maxRecordSize - DatagramData.HEADER_BYTE_SIZE - FragmentPayload.HEADER_BYTE_SIZE;
+        int numberOfFragments = (encodedPayload.length + maxFragmentSize - 1) / maxFragmentSize;
+        int fragmentedMessageId = lastFragmentedMessageId.incrementAndGet();
+
+        List<Message> fragments = new ArrayList<>(numberOfFragments);
+        for (int fragmentIndex = 0; fragmentIndex < numberOfFragments; fragmentIndex++) {
+            int offset = fragmentIndex * maxFragmentSize;
+            int length = Math.min(maxFragmentSize, encodedPayload.length - offset);
+            FragmentPayload fragmentPayload = new FragmentPayload(
+                    fragmentedMessageId, fragmentIndex, numberOfFragments, encodedPayload, offset, length
+            );
+            DatagramData fragmentData = new DatagramData(data.getSenderHostId(), data.getReceiverHostId(),
+                    DatagramDataType.FRAGMENT, fragmentPayload);
+            fragments.add(messageFactory.createToSend(fragmentData));
+        }
+        return fragments;
+    }
+
+    /**
+     * With pacing enabled, messages enter the window of a receiver no faster than its congestion window per smoothed
+     * round-trip time, so that a whole window is not sent in a single burst. Retransmissions and acknowledgments are
+     * not paced. Messages to a suspected receiver are held back in its queue until it is heard from again.
+     */
+    private boolean canAcceptIntoWindow(int receiverId) {
+        return !failureDetector.isSuspected(receiverId)
+                && storage.canSendMessageImmediately(receiverId)
+                && (!isPacingEnabled || storage.tryAcquirePacingToken(receiverId));
+    }
+
+    /**
+     * The message itself is transmitted, packed together with other messages to the same receiver, by the sending
+     * thread in {@link #transmitQueuedMessages()}.
+     */
+    private void acceptIntoWindow(Message message) {
+        int linkSequenceNumber = storage.getChannel(message.getReceiver().getId()).nextLinkSequenceNumber();
+        Message sequencedMessage = message.withLinkSequenceNumber(linkSequenceNumber);
+
+        TransmissionHistory history = new TransmissionHistory(sequencedMessage);
+        history.markSending();
+        storage.addUnacknowledgedMessage(sequencedMessage, history);
+        scheduleRetransmission(sequencedMessage, history);
+        storage.queueForTransmission(sequencedMessage);
     }
 
     public void queueForSending(Message message) {
-        storage.queueForSending(message);
+        fragment(message).forEach(storage::queueForSending);
+    }
+
+    /**
+     * Queues the message to be sent once, without a link sequence number, replacing the message queued under the same
+     * key for the same receiver if it was not sent yet. It must fit in a single datagram.
+     */
+    public void queueUnsequencedForSending(int key, Message message) {
+        storage.getChannel(message.getReceiver().getId()).getUnsequencedMessagesToSend().put(key, message);
+    }
+
+    /**
+     * Called by the sending thread checking the timeouts of the failure detector.
+     */
+    @Override
+    public void notifyOfAbandonment(int hostId) {
+        abandonedReceivers.add(hostId);
     }
 
-    private void doSend(Message message) {
+    /**
+     * The retransmissions to a receiver were not rescheduled while it was abandoned, so all the messages it has not
+     * acknowledged are retransmitted as soon as it is heard from again. Called by the sending thread checking the
+     * timeouts of the failure detector.
+     */
+    @Override
+    public void notifyOfRestoration(int hostId) {
+        if (abandonedReceivers.remove(hostId)) {
+            storage.queueUnacknowledgedForRetransmission(hostId);
+        }
+    }
+
+    private void doSend(ByteBuffer datagram, InetSocketAddress receiverAddress) {
         try {
-            sendingSocket.send(message.toSentPacket());
+            sendingTransport.send(datagram, receiverAddress);
         } catch (IOException exc) {
             System.err.println("Unable to send a UDP packet due to I/O exception");
             exc.printStackTrace();
@@ -73,60 +187,178 @@ public class Sender {
         }
     }
 
-    public void sendPendingMessages() {
-        Set<Message> successfullySent = new HashSet<>();
-        storage.getMessagesToSend().forEach(message -> {
-            boolean wasSent = send(message);
-            if (wasSent) successfullySent.add(message);
-        });
-        storage.removeFromToSend(successfullySent);
+    /**
+     * @return number of transmitted messages
+     */
+    public int sendPendingMessages() {
+        for (PeerChannel channel : storage.getChannels()) {
+            int receiverId = channel.getHost().getId();
+            Queue<Message> queue = channel.getMessagesToSend();
+            while (!queue.isEmpty() && canAcceptIntoWindow(receiverId)) {
+                acceptIntoWindow(queue.poll());
+            }
+        }
+        return transmitQueuedMessages();
+    }
+
+    /**
+     * The unsequenced messages are packed together with the other messages to the same receiver, but are neither
+     * acknowledged nor retransmitted.
+     *
+     * @return number of transmitted messages
+     */
+    public int sendUnsequencedMessages() {
+        int numberOfTransmitted = 0;
+        for (PeerChannel channel : storage.getChannels()) {
+            Map<Integer, Message> unsequencedToSend = channel.getUnsequencedMessagesToSend();
+            for (Map.Entry<Integer, Message> entry : unsequencedToSend.entrySet()) {
+                if (unsequencedToSend.remove(entry.getKey(), entry.getValue())) {
+                    packer.pack(entry.getValue());
+                    numberOfTransmitted++;
+                }
+            }
+        }
+        return numberOfTransmitted;
     }
 
-    public void processPendingAcknowledgmentReplies() {
-        Set<Message> pendingAckReply = storage.getPendingAcknowledgmentReplies();
-        pendingAckReply.forEach(this::doSend);
-        storage.removeFromPendingAcknowledgmentReplies(pendingAckReply);
+    private int transmitQueuedMessages() {
+        int numberOfTransmitted = 0;
+        Message message;
+        while ((message = storage.pollMessageToTransmit()) != null) {
+            packWithPiggybackedAcknowledgment(message);
+            numberOfTransmitted++;
+        }
+        return numberOfTransmitted;
     }
 
-    public void retransmitUnacknowledgedMessages() {
-        retransmitRecentUnacknowledgedMessages();
-        retransmitStaleMessages();
+    /**
+     * The pending acknowledgment for the receiver, if any, is packed right before the message and so travels in the
+     * same datagram instead of a separate one.
+     */
+    private void packWithPiggybackedAcknowledgment(Message message) {
+        PeerChannel channel = storage.getChannel(message.getReceiver().getId());
+        if (channel.takeAcknowledgmentPending()) {
+            packAcknowledgment(channel);
+        }
+        packer.pack(message);
     }
 
-    private void retransmitRecentUnacknowledgedMessages() {
-        Map<Message, TransmissionHistory> unacknowledgedMessages = storage.getUnacknowledgedMessages();
+    /**
+     * Sends a heartbeat, in the form of a standalone acknowledgment, to every host which was sent nothing since the
+     * previous heartbeat interval, so that it does not suspect this host.
+     *
+     * @return number of sent heartbeats
+     */
+    public int sendHeartbeats() {
+        long nowNanos = System.nanoTime();
+        if (nowNanos - lastHeartbeatTimeNanos < heartbeatIntervalNanos) return 0;
+        lastHeartbeatTimeNanos = nowNanos;
 
-        unacknowledgedMessages.forEach(((message, history) -> resendIfTimedOut(message, history, false)));
+        int numberOfHeartbeats = 0;
+        for (PeerChannel channel : storage.getChannels()) {
+            if (channel.getHost().getId() != hostId && channel.takeHeartbeatDue()) {
+                channel.takeAcknowledgmentPending();
+                packAcknowledgment(channel);
+                numberOfHeartbeats++;
+            }
+        }
+        return numberOfHeartbeats;
+    }
 
-        Set<Message> newStaleMessages = new HashSet<>();
-        unacknowledgedMessages.forEach((message, history) -> {
-            if (isNumberOfRetriesExceeded(history)) {
-                newStaleMessages.add(message);
+    /**
+     * Sends a standalone acknowledgment to every host whose acknowledgment has been pending for longer than the
+     * acknowledgment delay, as no data going to that host picked it up in the meantime.
+     *
+     * @return number of sent acknowledgments
+     */
+    public int processPendingAcknowledgmentReplies() {
+        long nowNanos = System.nanoTime();
+        int numberOfAcknowledged = 0;
+        for (PeerChannel channel : storage.getChannels()) {
+            if (channel.isAcknowledgmentDue(nowNanos, acknowledgmentDelayNanos) && channel.takeAcknowledgmentPending()) {
+                packAcknowledgment(channel);
+                numberOfAcknowledged++;
             }
-        });
+        }
+        return numberOfAcknowledged;
+    }
+
+    /**
+     * Packs a single cumulative and selective acknowledgment of the messages received from the host, followed by a
+     * negative acknowledgment of the newly detected gaps, if any.
+     */
+    private void packAcknowledgment(PeerChannel channel) {
+        int receiverId = channel.getHost().getId();
+        ReceivedSequenceTracker receivedSequences = channel.getReceivedSequences();
+        AcknowledgmentPayload acknowledgment = receivedSequences.createAcknowledgment();
+        DatagramData ackData = new DatagramData(hostId, receiverId, DatagramDataType.ACK, acknowledgment);
+        packer.pack(messageFactory.createToSend(ackData));
+
+        NegativeAcknowledgmentPayload negativeAcknowledgment = receivedSequences.createNegativeAcknowledgment();
+        if (negativeAcknowledgment != null) {
+            DatagramData nackData = new DatagramData(hostId, receiverId, DatagramDataType.NACK, negativeAcknowledgment);
+            packer.pack(messageFactory.createToSend(nackData));
+        }
+    }
 
-        storage.moveFromRecentToStale(newStaleMessages);
+    public void flushPackedMessages() {
+        packer.flush();
     }
 
-    private void retransmitStaleMessages() {
-        storage.getStaleUnacknowledgedMessages().forEach(((message, history) -> resendIfTimedOut(message, history, true)));
+    /**
+     * Retransmits the messages negatively acknowledged by their receivers and the ones whose retransmission timer
+     * expired, as reported by the timer wheel.
+     *
+     * @return number of retransmitted messages
+     */
+    public int retransmitUnacknowledgedMessages() {
+        int numberOfRetransmitted = 0;
+        Message negativelyAcknowledged;
+        while ((negativelyAcknowledged = storage.pollNegativelyAcknowledgedMessage()) != null) {
+            resend(negativelyAcknowledged, false);
+            numberOfRetransmitted++;
+        }
+
+        List<Message> timedOutMessages = storage.pollTimedOutMessages();
+        timedOutMessages.forEach(message -> resend(message, true));
+        return numberOfRetransmitted + timedOutMessages.size();
     }
 
-    private synchronized void resendIfTimedOut(Message message, TransmissionHistory history, boolean isStaleMessage) {
+    /**
+     * Both a timeout and a negative acknowledgment signal a loss to the congestion control, but only a timeout backs
+     * off the retransmission timeout, as in TCP fast retransmit. Retransmissions to a suspected receiver are
+     * postponed without counting as losses, and not even rescheduled once the receiver is abandoned, but the messages
+     * are kept until acknowledged, however long that takes.
+     */
+    private void resend(Message message, boolean isTimedOut) {
+        TransmissionHistory history = storage.getUnacknowledgedMessageHistory(message);
+        if (history == null) return; // acknowledged in the meantime
+
         Host receiver = message.getReceiver();
+        if (failureDetector.isAbandoned(receiver.getId())) return; // retransmitted once restored
+        if (failureDetector.isSuspected(receiver.getId())) {
+            scheduleRetransmission(message, history);
+            return;
+        }
+        if (!storage.markResending(message, history)) return;
         TransmissionParameters transmissionParameters = storage.getTransmissionParametersFor(receiver.getId());
 
-        if (isTimedOut(history, transmissionParameters, isStaleMessage)) {
-            doSend(message);
-            history.markSending();
-            transmissionParameters.increaseRetransmissionTimeout();
+        packWithPiggybackedAcknowledgment(message);
+        if (isTimedOut) transmissionParameters.increaseRetransmissionTimeout();
+        transmissionParameters.recordLoss();
+
+        if (isNumberOfRetriesExceeded(history)) {
+            storage.moveFromRecentToStale(message);
         }
+        scheduleRetransmission(message, history);
     }
 
-    private boolean isTimedOut(TransmissionHistory history, TransmissionParameters receiverTransmissionParameters,
-                               boolean isStaleMessage) {
-        Duration elapsedTime = Duration.between(history.getSendTime(), Instant.now());
-        return elapsedTime.compareTo(receiverTransmissionParameters.getRetransmissionTimeout(isStaleMessage)) > 0;
+    private void scheduleRetransmission(Message message, TransmissionHistory history) {
+        TransmissionParameters transmissionParameters =
+                storage.getTransmissionParametersFor(message.getReceiver().getId());
+        boolean isStaleMessage = storage.isStale(message);
+        storage.scheduleRetransmission(message, history,
+                transmissionParameters.getRetransmissionTimeoutNanos(isStaleMessage));
     }
 
     private boolean isNumberOfRetriesExceeded(TransmissionHistory history) {
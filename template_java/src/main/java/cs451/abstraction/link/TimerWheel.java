@@ -0,0 +1,175 @@
+package cs451.abstraction.link;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * <p>Hierarchical timer wheel: timers are hashed by their deadline tick into a slot of one of several wheels of
+ * growing granularity. Scheduling and cancelling are O(1), advancing touches only the timers whose deadline has
+ * expired, plus an occasional cascade of a coarser slot into the finer wheels.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">Varghese, Lauck - Hashed and Hierarchical Timing Wheels</a></li>
+ *     <li><a href="https://lwn.net/Articles/646950/">LWN - Reinventing the timer wheel</a></li>
+ * </ul>
+ * </p>
+ */
+public class TimerWheel<T> {
+
+    final private static int LEVELS = 4;
+    final private static int SLOT_BITS = 6;
+    final private static int SLOTS = 1 << SLOT_BITS;
+    final private static int SLOT_MASK = SLOTS - 1;
+    final private static long MAX_DELTA_TICKS = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+    final private long tickNanos;
+    final private long startNanos;
+    final private Timer<T>[][] wheels; // heads of the doubly-linked slot lists, null if empty
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(long tickNanos) {
+        this.tickNanos = tickNanos;
+        this.startNanos = System.nanoTime();
+        this.wheels = new Timer[LEVELS][SLOTS];
+        this.currentTick = 0;
+        this.size = 0;
+    }
+
+    public synchronized Timer<T> schedule(T value, long delayNanos) {
+        long deadlineTick = toTick(System.nanoTime() + delayNanos);
+        Timer<T> timer = new Timer<>(value, Math.max(deadlineTick, currentTick + 1));
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    public synchronized void cancel(Timer<T> timer) {
+        if (timer != null && timer.isScheduled()) {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    /**
+     * Moves the wheel forward to the current time.
+     *
+     * @return values of the timers which expired since the previous call
+     */
+    public synchronized List<T> advance() {
+        List<T> expired = new LinkedList<>();
+        long nowTick = toTick(System.nanoTime());
+
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return expired;
+        }
+
+        while (currentTick < nowTick) {
+            currentTick++;
+            cascade();
+            expireSlot(expired);
+        }
+        return expired;
+    }
+
+    private long toTick(long nanos) {
+        return (nanos - startNanos) / tickNanos;
+    }
+
+    private void cascade() {
+        // from the coarsest level, so that timers moved down are cascaded further in the same tick if needed
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                int slot = slotIndex(currentTick, level);
+                Timer<T> timer = wheels[level][slot];
+                wheels[level][slot] = null;
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    timer.detach();
+                    insert(timer);
+                    timer = next;
+                }
+            }
+        }
+    }
+
+    private void expireSlot(List<T> expired) {
+        int slot = slotIndex(currentTick, 0);
+        Timer<T> timer = wheels[0][slot];
+        wheels[0][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.detach();
+            if (timer.deadlineTick <= currentTick) {
+                expired.add(timer.value);
+                size--;
+            } else {
+                insert(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void insert(Timer<T> timer) {
+        long delta = Math.min(Math.max(timer.deadlineTick - currentTick, 0), MAX_DELTA_TICKS);
+        long tick = currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+
+        int slot = slotIndex(tick, level);
+        Timer<T> head = wheels[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.next = head;
+        if (head != null) head.previous = timer;
+        wheels[level][slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            wheels[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.detach();
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+    }
+
+    public static class Timer<T> {
+
+        final private T value;
+        final private long deadlineTick;
+        private int level;
+        private int slot;
+        private Timer<T> previous;
+        private Timer<T> next;
+
+        private Timer(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+            this.level = -1;
+        }
+
+        private boolean isScheduled() {
+            return level >= 0;
+        }
+
+        private void detach() {
+            level = -1;
+            previous = null;
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package cs451.abstraction.link;
+
+/**
+ * <p>Token bucket which refills at a rate given on every acquisition, as the pacing rate of a link changes together
+ * with its round-trip time and congestion window. The capacity bounds the burst of messages that may be sent at
+ * once after the link was idle.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://en.wikipedia.org/wiki/Token_bucket">Token bucket</a></li>
+ *     <li><a href="https://tools.ietf.org/html/draft-cardwell-iccrg-bbr-congestion-control-00#section-4.2.1">BBR - Pacing rate</a></li>
+ * </ul>
+ * </p>
+ */
+public class TokenBucket {
+
+    final private double capacity;
+    private double tokens;
+    private long lastRefillTimeNanos;
+
+    public TokenBucket(double capacity) {
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * @param ratePerSecond refill rate in tokens per second, may be infinite for no limit
+     * @return true if a token was available and taken
+     */
+    public synchronized boolean tryAcquire(double ratePerSecond) {
+        long nowNanos = System.nanoTime();
+        if (Double.isInfinite(ratePerSecond)) {
+            tokens = capacity;
+        } else {
+            tokens = Math.min(capacity, tokens + (nowNanos - lastRefillTimeNanos) * ratePerSecond / 1e9);
+        }
+        lastRefillTimeNanos = nowNanos;
+
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+}
@@ -1,97 +1,163 @@
 package cs451.abstraction.link;
 
-import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * <p>Retransmission parameters computation follows the TCP specification in RFC 6298.</p>
+ * <p>Retransmission parameters computation follows the TCP specification in RFC 6298. The size of the send window
+ * towards the host is decided by its own {@link CongestionController}.</p>
+ *
+ * <p>Times are kept in microseconds as primitive longs measured with {@link System#nanoTime()}, as the round-trip
+ * times on a local network are well below a millisecond. The smoothed round-trip time, its variance and the number of
+ * back-offs of the retransmission timeout since the latest measurement are packed into a single {@link AtomicLong},
+ * from which the retransmission timeout is derived. A measurement and a concurrent back-off are thus both applied with
+ * compare-and-set on the same value, without locking and without one overwriting the other.</p>
  *
  * <p>Used resources:
  * <ul>
  *     <li><a href="https://www.baeldung.com/java-measure-elapsed-time">Measuring elapsed time</a></li>
- *     <li><a href="https://www.tutorialspoint.com/duration-compareto-method-in-java">Comparing durations</a></li>
+ *     <li><a href="https://tools.ietf.org/html/rfc6298">RFC 6298</a></li>
+ *     <li><a href="https://www.baeldung.com/java-atomic-variables">Baeldung - Atomic variables</a></li>
  * </ul>
  * </p>
  */
 public class TransmissionParameters {
 
     final private static int K = 4;
-    final private static Duration GRANULARITY = Duration.ofMillis(1);
+    // granularity of the retransmission timers in MessagesStorage
+    final private static long GRANULARITY_MICROS = 1000;
     final private static double ALPHA = 0.125;
     final private static double BETA = 0.25;
     final private static int BACK_OFF_FACTOR = 2;
-    final private static Duration BASE_RETRANSMISSION_TIMEOUT = Duration.ofMillis(100);
-    final private static Duration MAX_RETRANSMISSION_TIMEOUT = Duration.ofHours(1);
+    final static long BASE_RETRANSMISSION_TIMEOUT_MICROS = TimeUnit.MILLISECONDS.toMicros(100);
+    final private static long MAX_RETRANSMISSION_TIMEOUT_MICROS = TimeUnit.HOURS.toMicros(1);
+    // pacing slightly faster than one window per round-trip time lets the window still grow
+    final private static double PACING_GAIN = 1.25;
+
+    final private static int ESTIMATE_BITS = 28;
+    final private static int BACK_OFF_BITS = 8;
+    final private static long MAX_ESTIMATE_MICROS = (1L << ESTIMATE_BITS) - 2;
+    // smoothed round-trip time before the first measurement
+    final private static long NO_ESTIMATE = MAX_ESTIMATE_MICROS + 1;
+    final private static int MAX_BACK_OFFS = (1 << BACK_OFF_BITS) - 1;
+
+    // smoothed round-trip time and its variance in microseconds, in the upper and middle 28 bits, and the number of
+    // back-offs since the latest measurement in the lower 8 bits
+    final private AtomicLong retransmissionState;
 
-    private Duration sRoundTripTime;
-    private Duration roundTripTimeVariance;
-    private Duration retransmissionTimeout;
+    final private CongestionController congestionController;
+    final private AtomicInteger messagesInFlight;
 
-    public TransmissionParameters() {
-        this.sRoundTripTime = null;
-        this.roundTripTimeVariance = null;
-        this.retransmissionTimeout = BASE_RETRANSMISSION_TIMEOUT;
+    public TransmissionParameters(CongestionController congestionController) {
+        this.retransmissionState = new AtomicLong(pack(NO_ESTIMATE, 0, 0));
+        this.congestionController = congestionController;
+        this.messagesInFlight = new AtomicInteger(0);
     }
 
-    public synchronized Duration getRetransmissionTimeout(boolean isStale) {
-        if (isStale) {
-            return retransmissionTimeout;
-        } else {
-            if (retransmissionTimeout.compareTo(BASE_RETRANSMISSION_TIMEOUT) < 0) return retransmissionTimeout;
-            else return BASE_RETRANSMISSION_TIMEOUT;
-        }
+    public boolean hasSpaceInCongestionWindow() {
+        return messagesInFlight.get() < congestionController.getCongestionWindow();
     }
 
-    public synchronized void increaseRetransmissionTimeout() {
-        Duration newRetransmissionTimeout = retransmissionTimeout.multipliedBy(BACK_OFF_FACTOR);
-        if (newRetransmissionTimeout.compareTo(MAX_RETRANSMISSION_TIMEOUT) < 0) {
-            this.retransmissionTimeout = newRetransmissionTimeout;
-        } else {
-            this.retransmissionTimeout = MAX_RETRANSMISSION_TIMEOUT;
-        }
+    public void recordSentMessage() {
+        messagesInFlight.incrementAndGet();
     }
 
-    public synchronized void updateRetransmissionTimeout(Duration roundTripTimeMeasurement) {
-        if (isFirstUpdate()) {
-            sRoundTripTime = roundTripTimeMeasurement;
-            roundTripTimeVariance = roundTripTimeMeasurement.dividedBy(2);
-        } else {
-            roundTripTimeVariance = computeRoundTripTimeVariance(roundTripTimeMeasurement);
-            sRoundTripTime = computeSRoundTripTime(roundTripTimeMeasurement);
-        }
-        retransmissionTimeout = computeUpdatedRetransmissionTimeout();
+    /**
+     * Messages leave the window when acknowledged or when considered stale after too many retransmissions.
+     */
+    public void recordMessagesLeavingWindow(int numberOfMessages) {
+        messagesInFlight.addAndGet(-numberOfMessages);
     }
 
-    private synchronized boolean isFirstUpdate() {
-        return this.sRoundTripTime == null && this.roundTripTimeVariance == null;
+    public void recordAcknowledgment(int numberOfAcknowledged, long roundTripTimeMeasurementNanos) {
+        congestionController.onAcknowledged(numberOfAcknowledged, roundTripTimeMeasurementNanos);
     }
 
-    private synchronized Duration computeRoundTripTimeVariance(Duration roundTripTimeMeasurement) {
-        long RTTVarMillis = roundTripTimeVariance.toMillis();
-        long sRTTMillis = sRoundTripTime.toMillis();
-        long RTTMeasurementMillis = roundTripTimeMeasurement.toMillis();
+    public void recordLoss() {
+        congestionController.onLoss();
+    }
+
+    /**
+     * @return rate in messages per second which spreads the congestion window over the smoothed round-trip time,
+     * infinite until the first round-trip time is measured
+     */
+    public double getPacingRate() {
+        long sRoundTripTimeMicros = getSRoundTripTimeMicros(retransmissionState.get());
+        if (sRoundTripTimeMicros == NO_ESTIMATE) return Double.POSITIVE_INFINITY;
 
-        long newRTTMillis = Math.round((1 - BETA) * RTTVarMillis + BETA * Math.abs(sRTTMillis - RTTMeasurementMillis));
-        return Duration.ofMillis(newRTTMillis);
+        sRoundTripTimeMicros = Math.max(sRoundTripTimeMicros, 1);
+        return PACING_GAIN * congestionController.getCongestionWindow() * TimeUnit.SECONDS.toMicros(1)
+                / sRoundTripTimeMicros;
+    }
+
+    public long getRetransmissionTimeoutNanos(boolean isStale) {
+        long timeoutMicros = computeRetransmissionTimeoutMicros(retransmissionState.get());
+        if (!isStale) {
+            timeoutMicros = Math.min(timeoutMicros, BASE_RETRANSMISSION_TIMEOUT_MICROS);
+        }
+        return TimeUnit.MICROSECONDS.toNanos(timeoutMicros);
     }
 
-    private synchronized Duration computeSRoundTripTime(Duration roundTripTimeMeasurement) {
-        long sRTTMillis = sRoundTripTime.toMillis();
-        long RTTMeasurementMillis = roundTripTimeMeasurement.toMillis();
+    public void increaseRetransmissionTimeout() {
+        retransmissionState.updateAndGet(state -> {
+            boolean isAtMaximum = getBackOffs(state) == MAX_BACK_OFFS
+                    || computeRetransmissionTimeoutMicros(state) >= MAX_RETRANSMISSION_TIMEOUT_MICROS;
+            return isAtMaximum ? state : state + 1;
+        });
+    }
 
-        long newRTTMillis = Math.round((1 - ALPHA) * sRTTMillis + ALPHA * RTTMeasurementMillis);
-        return Duration.ofMillis(newRTTMillis);
+    /**
+     * A measurement resets the back-offs, the timeout is computed from the updated estimate alone (RFC 6298).
+     */
+    public void updateRetransmissionTimeout(long roundTripTimeMeasurementNanos) {
+        long measurementMicros = Math.min(
+                Math.max(TimeUnit.NANOSECONDS.toMicros(roundTripTimeMeasurementNanos), 0), MAX_ESTIMATE_MICROS
+        );
+        retransmissionState.updateAndGet(state -> computeUpdatedEstimate(state, measurementMicros));
     }
 
-    private synchronized Duration computeUpdatedRetransmissionTimeout() {
-        return sRoundTripTime.plus(maxOfGranularityAnd(roundTripTimeVariance.multipliedBy(K)));
+    private static long computeRetransmissionTimeoutMicros(long state) {
+        long sRoundTripTimeMicros = getSRoundTripTimeMicros(state);
+        long timeoutMicros = sRoundTripTimeMicros == NO_ESTIMATE
+                ? BASE_RETRANSMISSION_TIMEOUT_MICROS
+                : sRoundTripTimeMicros + Math.max(GRANULARITY_MICROS, K * getRoundTripTimeVarianceMicros(state));
+        for (int backOff = 0; backOff < getBackOffs(state) && timeoutMicros < MAX_RETRANSMISSION_TIMEOUT_MICROS;
+             backOff++) {
+            timeoutMicros *= BACK_OFF_FACTOR;
+        }
+        return Math.min(timeoutMicros, MAX_RETRANSMISSION_TIMEOUT_MICROS);
     }
 
-    private synchronized Duration maxOfGranularityAnd(Duration duration) {
-        int comparison = duration.compareTo(GRANULARITY);
-        if (comparison < 0) {
-            return GRANULARITY;
-        } else {
-            return duration;
+    private static long computeUpdatedEstimate(long previous, long measurementMicros) {
+        long sRoundTripTimeMicros = getSRoundTripTimeMicros(previous);
+        if (sRoundTripTimeMicros == NO_ESTIMATE) {
+            return pack(measurementMicros, measurementMicros / 2, 0);
         }
+        long roundTripTimeVarianceMicros = getRoundTripTimeVarianceMicros(previous);
+
+        long newVarianceMicros = Math.round((1 - BETA) * roundTripTimeVarianceMicros
+                + BETA * Math.abs(sRoundTripTimeMicros - measurementMicros));
+        long newSRoundTripTimeMicros = Math.round((1 - ALPHA) * sRoundTripTimeMicros + ALPHA * measurementMicros);
+        return pack(Math.min(newSRoundTripTimeMicros, MAX_ESTIMATE_MICROS),
+                Math.min(newVarianceMicros, MAX_ESTIMATE_MICROS), 0);
+    }
+
+    private static long pack(long sRoundTripTimeMicros, long roundTripTimeVarianceMicros, int backOffs) {
+        return (sRoundTripTimeMicros << (ESTIMATE_BITS + BACK_OFF_BITS))
+                | (roundTripTimeVarianceMicros << BACK_OFF_BITS)
+                | backOffs;
+    }
+
+    private static long getSRoundTripTimeMicros(long state) {
+        return state >>> (ESTIMATE_BITS + BACK_OFF_BITS);
+    }
+
+    private static long getRoundTripTimeVarianceMicros(long state) {
+        return (state >>> BACK_OFF_BITS) & ((1L << ESTIMATE_BITS) - 1);
+    }
+
+    private static int getBackOffs(long state) {
+        return (int) (state & MAX_BACK_OFFS);
     }
 }
@@ -0,0 +1,20 @@
+package cs451.abstraction.link;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+public enum TransportType {
+    DATAGRAM_CHANNEL,
+    DATAGRAM_SOCKET;
+
+    /**
+     * @param localAddress address to bind to, or null for an ephemeral sending-only endpoint
+     */
+    public DatagramTransport open(InetSocketAddress localAddress, int maxDatagramSize) throws IOException {
+        if (this == DATAGRAM_CHANNEL) {
+            return new DatagramChannelTransport(localAddress);
+        } else {
+            return new DatagramSocketTransport(localAddress, maxDatagramSize);
+        }
+    }
+}
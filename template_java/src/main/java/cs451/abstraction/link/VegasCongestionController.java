@@ -0,0 +1,90 @@
+package cs451.abstraction.link;
+
+/**
+ * <p>Delay-based congestion control after TCP Vegas. Once per round-trip time the number of messages queued in the
+ * network, <code>window * (1 - baseRTT / RTT)</code>, is estimated and the window is grown while it stays below
+ * {@link #ALPHA} and shrunk when it exceeds {@link #BETA}. Slow start ends as soon as queueing exceeds
+ * {@link #GAMMA}. Losses still shrink the window, once per round and less aggressively than in AIMD.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://sites.cs.ucsb.edu/~rich/class/cs290-cloud/papers/tcp-vegas.pdf">Brakmo, Peterson - TCP Vegas</a></li>
+ * </ul>
+ * </p>
+ */
+public class VegasCongestionController implements CongestionController {
+
+    final private static int INITIAL_CONGESTION_WINDOW = 128;
+    final private static double ALPHA = 2;
+    final private static double BETA = 4;
+    final private static double GAMMA = 1;
+    final private static double LOSS_DECREASE_FACTOR = 0.75;
+
+    private double congestionWindow;
+    private boolean isInSlowStart;
+    private long baseRoundTripTimeNanos;
+    private long minRoundTripTimeInRoundNanos;
+    private int acknowledgedInRound;
+    private boolean wasDecreasedInRound;
+
+    public VegasCongestionController() {
+        this.congestionWindow = INITIAL_CONGESTION_WINDOW;
+        this.isInSlowStart = true;
+        this.baseRoundTripTimeNanos = Long.MAX_VALUE;
+        this.minRoundTripTimeInRoundNanos = Long.MAX_VALUE;
+        this.acknowledgedInRound = 0;
+        this.wasDecreasedInRound = false;
+    }
+
+    @Override
+    public synchronized int getCongestionWindow() {
+        return (int) congestionWindow;
+    }
+
+    @Override
+    public synchronized void onAcknowledged(int numberOfAcknowledged, long roundTripTimeMeasurementNanos) {
+        if (roundTripTimeMeasurementNanos != NO_MEASUREMENT) {
+            long sampleNanos = Math.max(roundTripTimeMeasurementNanos, 1);
+            baseRoundTripTimeNanos = Math.min(baseRoundTripTimeNanos, sampleNanos);
+            minRoundTripTimeInRoundNanos = Math.min(minRoundTripTimeInRoundNanos, sampleNanos);
+        }
+
+        acknowledgedInRound += numberOfAcknowledged;
+        if (acknowledgedInRound >= congestionWindow) {
+            adjustOncePerRound();
+        }
+    }
+
+    private void adjustOncePerRound() {
+        if (minRoundTripTimeInRoundNanos != Long.MAX_VALUE) {
+            double queued = congestionWindow * (1 - (double) baseRoundTripTimeNanos / minRoundTripTimeInRoundNanos);
+
+            if (isInSlowStart) {
+                if (queued > GAMMA) {
+                    isInSlowStart = false;
+                    congestionWindow -= queued;
+                } else {
+                    congestionWindow *= 2;
+                }
+            } else if (queued < ALPHA) {
+                congestionWindow += 1;
+            } else if (queued > BETA) {
+                congestionWindow -= 1;
+            }
+            congestionWindow = Math.min(Math.max(congestionWindow, MIN_CONGESTION_WINDOW), MAX_CONGESTION_WINDOW);
+        }
+
+        acknowledgedInRound = 0;
+        minRoundTripTimeInRoundNanos = Long.MAX_VALUE;
+        wasDecreasedInRound = false;
+    }
+
+    @Override
+    public synchronized void onLoss() {
+        if (wasDecreasedInRound) return;
+
+        isInSlowStart = false;
+        congestionWindow = Math.max(congestionWindow * LOSS_DECREASE_FACTOR, MIN_CONGESTION_WINDOW);
+        wasDecreasedInRound = true;
+    }
+}
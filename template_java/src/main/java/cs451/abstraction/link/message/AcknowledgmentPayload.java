@@ -0,0 +1,125 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Acknowledges link sequence numbers received from a single host: all of them up to and including the cumulative
+ * sequence number and, selectively, those flagged in the bitmap. Bit <code>i</code> of the bitmap stands for the
+ * sequence number <code>cumulativeSequenceNumber + 1 + i</code>.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://tools.ietf.org/html/rfc2018">RFC 2018 - TCP Selective Acknowledgment Options</a></li>
+ * </ul>
+ * </p>
+ */
+public class AcknowledgmentPayload implements Payload {
+
+    final private static int HEADER_BYTE_SIZE = Integer.BYTES + Byte.BYTES;
+
+    final private int cumulativeSequenceNumber;
+    final private long[] selectiveBitmap;
+
+    public AcknowledgmentPayload(int cumulativeSequenceNumber, long[] selectiveBitmap) {
+        this.cumulativeSequenceNumber = cumulativeSequenceNumber;
+        this.selectiveBitmap = selectiveBitmap;
+    }
+
+    public int getCumulativeSequenceNumber() {
+        return cumulativeSequenceNumber;
+    }
+
+    public boolean isAcknowledged(int sequenceNumber) {
+        if (sequenceNumber <= cumulativeSequenceNumber) return true;
+        int offset = sequenceNumber - cumulativeSequenceNumber - 1;
+        int word = offset / Long.SIZE;
+        return word < selectiveBitmap.length && (selectiveBitmap[word] & (1L << offset)) != 0;
+    }
+
+    /**
+     * @return true if every sequence number acknowledged by the other acknowledgment is acknowledged by this one
+     */
+    public boolean covers(AcknowledgmentPayload other) {
+        for (int sequenceNumber = cumulativeSequenceNumber + 1; sequenceNumber <= other.cumulativeSequenceNumber;
+             sequenceNumber++) {
+            if (!isAcknowledged(sequenceNumber)) return false;
+        }
+        for (int word = 0; word < other.selectiveBitmap.length; word++) {
+            long bits = other.selectiveBitmap[word];
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                if (!isAcknowledged(other.cumulativeSequenceNumber + 1 + word * Long.SIZE + bit)) return false;
+                bits &= bits - 1;
+            }
+        }
+        return true;
+    }
+
+    public void forEachSelectivelyAcknowledged(IntConsumer action) {
+        for (int word = 0; word < selectiveBitmap.length; word++) {
+            long bits = selectiveBitmap[word];
+            while (bits != 0) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                action.accept(cumulativeSequenceNumber + 1 + word * Long.SIZE + bit);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(cumulativeSequenceNumber);
+        buffer.put((byte) selectiveBitmap.length);
+        for (long word : selectiveBitmap) {
+            buffer.putLong(word);
+        }
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return getSizeInBytes(selectiveBitmap.length);
+    }
+
+    public static int getSizeInBytes(int selectiveBitmapWords) {
+        return HEADER_BYTE_SIZE + selectiveBitmapWords * Long.BYTES;
+    }
+
+    @Override
+    public Payload getPayload() {
+        return null;
+    }
+
+    @Override
+    public int getOriginalSenderId() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public int getSequenceNumber() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AcknowledgmentPayload that = (AcknowledgmentPayload) o;
+        return cumulativeSequenceNumber == that.cumulativeSequenceNumber &&
+                Arrays.equals(selectiveBitmap, that.selectiveBitmap);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(cumulativeSequenceNumber);
+        result = 31 * result + Arrays.hashCode(selectiveBitmap);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return cumulativeSequenceNumber + " " + Arrays.toString(selectiveBitmap);
+    }
+}
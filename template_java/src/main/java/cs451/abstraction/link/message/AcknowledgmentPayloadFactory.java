@@ -0,0 +1,17 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+public class AcknowledgmentPayloadFactory implements PayloadFactory {
+
+    @Override
+    public AcknowledgmentPayload create(ByteBuffer buffer) {
+        int cumulativeSequenceNumber = buffer.getInt();
+        int bitmapLength = Byte.toUnsignedInt(buffer.get());
+        long[] selectiveBitmap = new long[bitmapLength];
+        for (int word = 0; word < bitmapLength; word++) {
+            selectiveBitmap[word] = buffer.getLong();
+        }
+        return new AcknowledgmentPayload(cumulativeSequenceNumber, selectiveBitmap);
+    }
+}
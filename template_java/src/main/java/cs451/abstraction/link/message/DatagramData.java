@@ -12,21 +12,37 @@ import java.util.Objects;
  */
 public class DatagramData {
 
+    // link sequence numbers are assigned per receiver starting from 1, acknowledgments are not sequenced
+    final public static int UNSEQUENCED = 0;
+    final public static int HEADER_BYTE_SIZE = 3 * Integer.BYTES + DatagramDataType.getEncodingSizeInBytes();
+
     final private int senderHostId;
     final private int receiverHostId;
     final private DatagramDataType type;
+    final private int linkSequenceNumber;
     final private Payload payload;
+    // local System.nanoTime() timestamp of the reception, not transmitted and not part of the identity of the data
+    private long receiveTimeNanos;
 
     public DatagramData(int senderHostId, int receiverHostId, DatagramDataType type, Payload payload) {
+        this(senderHostId, receiverHostId, type, UNSEQUENCED, payload);
+    }
+
+    public DatagramData(int senderHostId, int receiverHostId, DatagramDataType type, int linkSequenceNumber,
+                        Payload payload) {
         this.senderHostId = senderHostId;
         this.receiverHostId = receiverHostId;
         this.type = type;
+        this.linkSequenceNumber = linkSequenceNumber;
         this.payload = payload;
     }
 
-    public final byte[] convertToBytes() {
-        ByteBuffer buffer = ByteBuffer.allocate(getSizeInBytes());
-        return fillBufferWithDataBytes(buffer).array();
+    public DatagramData withLinkSequenceNumber(int linkSequenceNumber) {
+        return new DatagramData(senderHostId, receiverHostId, type, linkSequenceNumber, payload);
+    }
+
+    public final void writeTo(ByteBuffer buffer) {
+        fillBufferWithDataBytes(buffer);
     }
 
     /**
@@ -38,7 +54,8 @@ public class DatagramData {
         buffer.putInt(senderHostId);
         buffer.putInt(receiverHostId);
         buffer.put(type.getEncoding());
-        buffer.put(payload.getBytes());
+        buffer.putInt(linkSequenceNumber);
+        payload.writeTo(buffer);
         return buffer;
     }
 
@@ -54,24 +71,45 @@ public class DatagramData {
         return type;
     }
 
-    public Payload getPayload() {
-        return payload;
+    public int getLinkSequenceNumber() {
+        return linkSequenceNumber;
+    }
+
+    public long getReceiveTimeNanos() {
+        return receiveTimeNanos;
+    }
+
+    public void setReceiveTimeNanos(long receiveTimeNanos) {
+        this.receiveTimeNanos = receiveTimeNanos;
     }
 
-    protected int getSizeInBytes() {
-        return 2 * Integer.BYTES + DatagramDataType.getEncodingSizeInBytes() + payload.getSizeInBytes();
+    /**
+     * @return encoding of the payload, shared rather than copied if it is already kept encoded
+     */
+    public byte[] getPayloadBytes() {
+        return payload.getBytes();
     }
 
-    public static DatagramData convertReceivedToAcknowledgment(DatagramData received) {
-        int ackSenderId = received.getReceiverHostId();
-        int ackReceiverId = received.getSenderHostId();
-        return new DatagramData(ackSenderId, ackReceiverId, DatagramDataType.ACK, received.getPayload());
+    /**
+     * @return the payload, decoded on first access if it was received in its {@link EncodedPayload encoded form}
+     */
+    public Payload getPayload() {
+        if (payload instanceof EncodedPayload) {
+            return ((EncodedPayload) payload).decode();
+        }
+        return payload;
+    }
+
+    /**
+     * @return the payload as received, still in its {@link EncodedPayload encoded form} if it came from the network, so
+     * that relaying it shares the received bytes instead of encoding it again
+     */
+    public Payload getPayloadAsReceived() {
+        return payload;
     }
 
-    public static DatagramData convertAcknowledgmentToOriginal(DatagramData acknowledgment) {
-        int originalSenderId = acknowledgment.getReceiverHostId();
-        int originalReceiverId = acknowledgment.getSenderHostId();
-        return new DatagramData(originalSenderId, originalReceiverId, DatagramDataType.PAYLOAD, acknowledgment.getPayload());
+    public int getSizeInBytes() {
+        return HEADER_BYTE_SIZE + payload.getSizeInBytes();
     }
 
     @Override
@@ -82,16 +120,16 @@ public class DatagramData {
         return senderHostId == that.senderHostId &&
                 receiverHostId == that.receiverHostId &&
                 type == that.type &&
-                payload.equals(that.payload);
+                getPayload().equals(that.getPayload());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(senderHostId, receiverHostId, type, payload);
+        return Objects.hash(senderHostId, receiverHostId, type, getPayload());
     }
 
     @Override
     public String toString() {
-        return type + " " + senderHostId + " " + receiverHostId + " " + payload;
+        return type + " " + senderHostId + " " + receiverHostId + " " + linkSequenceNumber + " " + payload;
     }
 }
@@ -1,24 +1,73 @@
 package cs451.abstraction.link.message;
 
-import java.net.DatagramPacket;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DatagramDataFactory {
 
     final private PayloadFactory payloadFactory;
+    final private AcknowledgmentPayloadFactory acknowledgmentPayloadFactory;
+    final private NegativeAcknowledgmentPayloadFactory negativeAcknowledgmentPayloadFactory;
+    final private FragmentPayloadFactory fragmentPayloadFactory;
+    final private SeenPayloadFactory seenPayloadFactory;
 
     public DatagramDataFactory(PayloadFactory payloadFactory) {
         this.payloadFactory = payloadFactory;
+        this.acknowledgmentPayloadFactory = new AcknowledgmentPayloadFactory();
+        this.negativeAcknowledgmentPayloadFactory = new NegativeAcknowledgmentPayloadFactory();
+        this.fragmentPayloadFactory = new FragmentPayloadFactory();
+        this.seenPayloadFactory = new SeenPayloadFactory();
     }
 
-    public DatagramData create(DatagramPacket udpPacket) {
-        ByteBuffer buffer = ByteBuffer.wrap(udpPacket.getData());
+    /**
+     * Unpacks all the records of a frame built by {@link cs451.abstraction.link.DatagramPacker}.
+     */
+    public List<DatagramData> createAll(ByteBuffer buffer, long receiveTimeNanos) {
+        int numberOfRecords = Short.toUnsignedInt(buffer.getShort());
+        List<DatagramData> records = new ArrayList<>(numberOfRecords);
+        for (int record = 0; record < numberOfRecords; record++) {
+            int recordLength = Short.toUnsignedInt(buffer.getShort());
+            int nextRecordPosition = buffer.position() + recordLength;
+            DatagramData data = create(buffer, recordLength);
+            data.setReceiveTimeNanos(receiveTimeNanos);
+            records.add(data);
+            buffer.position(nextRecordPosition);
+        }
+        return records;
+    }
 
+    /**
+     * Decodes only the link header up front, the payload of the data is decoded lazily by {@link EncodedPayload}.
+     * Acknowledgments, positive and negative, and seen summaries are always needed right away, so they are decoded
+     * eagerly.
+     */
+    public DatagramData create(ByteBuffer buffer, int length) {
         int senderHostId = buffer.getInt();
         int receiverHostId = buffer.getInt();
         DatagramDataType type = DatagramDataType.fromEncoding(buffer.get());
-        Payload payload = payloadFactory.create(buffer);
+        int linkSequenceNumber = buffer.getInt();
+        Payload payload;
+        if (type.equals(DatagramDataType.ACK)) {
+            payload = acknowledgmentPayloadFactory.create(buffer);
+        } else if (type.equals(DatagramDataType.NACK)) {
+            payload = negativeAcknowledgmentPayloadFactory.create(buffer);
+        } else if (type.equals(DatagramDataType.FRAGMENT)) {
+            payload = fragmentPayloadFactory.create(buffer, length - DatagramData.HEADER_BYTE_SIZE);
+        } else if (type.equals(DatagramDataType.SEEN)) {
+            payload = seenPayloadFactory.create(buffer);
+        } else {
+            payload = EncodedPayload.copyOf(buffer, length - DatagramData.HEADER_BYTE_SIZE, payloadFactory);
+        }
+
+        return new DatagramData(senderHostId, receiverHostId, type, linkSequenceNumber, payload);
+    }
 
-        return new DatagramData(senderHostId, receiverHostId, type, payload);
+    /**
+     * @param encodedPayload payload reassembled from the fragments of a message
+     */
+    public DatagramData createReassembled(int senderHostId, int receiverHostId, byte[] encodedPayload) {
+        return new DatagramData(senderHostId, receiverHostId, DatagramDataType.PAYLOAD,
+                new EncodedPayload(encodedPayload, payloadFactory));
     }
 }
@@ -9,7 +9,12 @@ package cs451.abstraction.link.message;
  */
 public enum DatagramDataType {
     PAYLOAD((byte) 0),
-    ACK((byte) 1);
+    ACK((byte) 1),
+    NACK((byte) 2),
+    FRAGMENT((byte) 3),
+    SEEN((byte) 4);
+
+    final private static DatagramDataType[] VALUES = values();
 
     private final byte encodingValue;
 
@@ -18,11 +23,10 @@ public enum DatagramDataType {
     }
 
     public static DatagramDataType fromEncoding(byte encoding) {
-        if (encoding == (byte) 0) {
-            return PAYLOAD;
-        } else {
-            return ACK;
+        for (DatagramDataType type : VALUES) {
+            if (type.encodingValue == encoding) return type;
         }
+        throw new IllegalArgumentException("Unknown datagram data type encoding " + encoding);
     }
 
     public byte getEncoding() {
@@ -35,7 +39,6 @@ public enum DatagramDataType {
 
     @Override
     public String toString() {
-        if (encodingValue == (byte) 0) return "PAYLOAD";
-        else return "ACK";
+        return name();
     }
 }
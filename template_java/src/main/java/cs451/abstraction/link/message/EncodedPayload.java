@@ -0,0 +1,114 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Payload kept in its encoded form and decoded with its {@link PayloadFactory} only when one of the layers
+ * actually needs to look inside it. Received duplicates are rejected on the link header alone, so their payloads
+ * are never decoded.</p>
+ *
+ * <p>On the sending side, {@link #of(Payload)} encodes a payload once so that it can be shared by the messages to all
+ * the receivers of a broadcast and by all their retransmissions, which then only copy the bytes after their own
+ * link header. A received payload relayed further is already encoded, so its received bytes are sent as they
+ * are.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://en.wikipedia.org/wiki/Lazy_initialization">Lazy initialization</a></li>
+ *     <li><a href="https://en.wikipedia.org/wiki/Double-checked_locking#Usage_in_Java">Double-checked locking</a></li>
+ * </ul>
+ * </p>
+ */
+public class EncodedPayload implements Payload {
+
+    final private byte[] bytes;
+    final private PayloadFactory payloadFactory;
+    private volatile Payload decoded;
+
+    public EncodedPayload(byte[] bytes, PayloadFactory payloadFactory) {
+        this.bytes = bytes;
+        this.payloadFactory = payloadFactory;
+        this.decoded = null;
+    }
+
+    private EncodedPayload(byte[] bytes, Payload decoded) {
+        this.bytes = bytes;
+        this.payloadFactory = null;
+        this.decoded = decoded;
+    }
+
+    public static EncodedPayload of(Payload payload) {
+        if (payload instanceof EncodedPayload) return (EncodedPayload) payload;
+        return new EncodedPayload(payload.getBytes(), payload);
+    }
+
+    /**
+     * Copies the next <code>length</code> bytes out of the buffer, which can then be reused.
+     */
+    public static EncodedPayload copyOf(ByteBuffer buffer, int length, PayloadFactory payloadFactory) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new EncodedPayload(bytes, payloadFactory);
+    }
+
+    public Payload decode() {
+        Payload payload = decoded;
+        if (payload == null) {
+            synchronized (this) {
+                payload = decoded;
+                if (payload == null) {
+                    payload = payloadFactory.create(ByteBuffer.wrap(bytes));
+                    decoded = payload;
+                }
+            }
+        }
+        return payload;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put(bytes);
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return bytes.length;
+    }
+
+    @Override
+    public Payload getPayload() {
+        return decode().getPayload();
+    }
+
+    @Override
+    public int getOriginalSenderId() {
+        return decode().getOriginalSenderId();
+    }
+
+    @Override
+    public int getSequenceNumber() {
+        return decode().getSequenceNumber();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof EncodedPayload) return decode().equals(((EncodedPayload) o).decode());
+        return decode().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return decode().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return decode().toString();
+    }
+}
@@ -32,11 +32,9 @@ public class FIFOPayload implements Comparable<FIFOPayload>, Payload {
     }
 
     @Override
-    public byte[] getBytes() {
-        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTE_SIZE + payload.getSizeInBytes());
+    public void writeTo(ByteBuffer buffer) {
         buffer.putInt(sequenceNumber);
-        buffer.put(payload.getBytes());
-        return buffer.array();
+        payload.writeTo(buffer);
     }
 
     @Override
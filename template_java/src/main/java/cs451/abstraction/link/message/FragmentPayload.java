@@ -0,0 +1,105 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>One fragment of the encoded payload of a message too large for a single datagram. Fragments travel as
+ * independent link messages, each with its own link sequence number, so that they are acknowledged and retransmitted
+ * one by one. The fragmented message is identified by a number unique for its sender.</p>
+ *
+ * <p>The fragment refers to a slice of the encoded payload shared by all the fragments of the message instead of
+ * copying it.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://en.wikipedia.org/wiki/IP_fragmentation">IP fragmentation</a></li>
+ * </ul>
+ * </p>
+ */
+public class FragmentPayload implements Payload {
+
+    final public static int HEADER_BYTE_SIZE = 3 * Integer.BYTES;
+
+    final private int fragmentedMessageId;
+    final private int fragmentIndex;
+    final private int numberOfFragments;
+    final private byte[] source;
+    final private int offset;
+    final private int length;
+
+    public FragmentPayload(int fragmentedMessageId, int fragmentIndex, int numberOfFragments,
+                           byte[] source, int offset, int length) {
+        this.fragmentedMessageId = fragmentedMessageId;
+        this.fragmentIndex = fragmentIndex;
+        this.numberOfFragments = numberOfFragments;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public int getFragmentedMessageId() {
+        return fragmentedMessageId;
+    }
+
+    public int getFragmentIndex() {
+        return fragmentIndex;
+    }
+
+    public int getNumberOfFragments() {
+        return numberOfFragments;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void copyTo(byte[] destination, int destinationOffset) {
+        System.arraycopy(source, offset, destination, destinationOffset, length);
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(fragmentedMessageId);
+        buffer.putInt(fragmentIndex);
+        buffer.putInt(numberOfFragments);
+        buffer.put(source, offset, length);
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return HEADER_BYTE_SIZE + length;
+    }
+
+    @Override
+    public Payload getPayload() {
+        return null;
+    }
+
+    @Override
+    public int getOriginalSenderId() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public int getSequenceNumber() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FragmentPayload that = (FragmentPayload) o;
+        return fragmentedMessageId == that.fragmentedMessageId && fragmentIndex == that.fragmentIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * fragmentedMessageId + fragmentIndex;
+    }
+
+    @Override
+    public String toString() {
+        return fragmentedMessageId + " " + fragmentIndex + "/" + numberOfFragments;
+    }
+}
@@ -0,0 +1,15 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+public class FragmentPayloadFactory {
+
+    public FragmentPayload create(ByteBuffer buffer, int length) {
+        int fragmentedMessageId = buffer.getInt();
+        int fragmentIndex = buffer.getInt();
+        int numberOfFragments = buffer.getInt();
+        byte[] fragment = new byte[length - FragmentPayload.HEADER_BYTE_SIZE];
+        buffer.get(fragment);
+        return new FragmentPayload(fragmentedMessageId, fragmentIndex, numberOfFragments, fragment, 0, fragment.length);
+    }
+}
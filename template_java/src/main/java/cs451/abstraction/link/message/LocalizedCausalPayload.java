@@ -17,11 +17,9 @@ public class LocalizedCausalPayload implements Comparable<LocalizedCausalPayload
     }
 
     @Override
-    public byte[] getBytes() {
-        ByteBuffer buffer = ByteBuffer.allocate(sizeInBytes);
-        buffer.put(vectorClock.getBytes());
-        buffer.put(payload.getBytes());
-        return buffer.array();
+    public void writeTo(ByteBuffer buffer) {
+        vectorClock.writeTo(buffer);
+        payload.writeTo(buffer);
     }
 
     @Override
@@ -2,8 +2,6 @@ package cs451.abstraction.link.message;
 
 import cs451.parser.Host;
 
-import java.net.DatagramPacket;
-import java.net.InetSocketAddress;
 import java.util.Objects;
 
 public class Message {
@@ -43,11 +41,8 @@ public class Message {
         return getData().getPayload();
     }
 
-    public DatagramPacket toSentPacket() {
-        byte[] messageBytes = getData().convertToBytes();
-        Host receiver = getReceiver();
-        InetSocketAddress receiverSocketAddress = new InetSocketAddress(receiver.getIp(), receiver.getPort());
-        return new DatagramPacket(messageBytes, messageBytes.length, receiverSocketAddress);
+    public Message withLinkSequenceNumber(int linkSequenceNumber) {
+        return new Message(sender, receiver, getData().withLinkSequenceNumber(linkSequenceNumber));
     }
 
     @Override
@@ -0,0 +1,26 @@
+package cs451.abstraction.link.message;
+
+/**
+ * <p>Packs a pair of non-negative integer identifiers into a single <code>long</code>, with the host identifier in the
+ * upper and the sequence number in the lower 32 bits, to be used as a primitive key. A broadcast message is
+ * identified by its origin and its sequence number at the origin.</p>
+ */
+public class MessageId {
+
+    final private static long SEQUENCE_NUMBER_MASK = 0xFFFFFFFFL;
+
+    private MessageId() {
+    }
+
+    public static long of(int originalSenderId, int sequenceNumber) {
+        return ((long) originalSenderId << Integer.SIZE) | (sequenceNumber & SEQUENCE_NUMBER_MASK);
+    }
+
+    public static int getHostId(long id) {
+        return (int) (id >>> Integer.SIZE);
+    }
+
+    public static int getSequenceNumber(long id) {
+        return (int) id;
+    }
+}
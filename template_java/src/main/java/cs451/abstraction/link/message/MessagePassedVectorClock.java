@@ -7,16 +7,30 @@ import java.util.Arrays;
 import java.util.Objects;
 import java.util.Set;
 
+/**
+ * <p>Vector clock passed along with a localized causal broadcast message. Only the entries of the hosts the sender
+ * depends on, together with its own entry, are ever non-zero, so the clock is encoded sparsely as the number of
+ * non-zero entries followed by the varint gap to the previous encoded host index and the varint entry value of each.
+ * The encoding thus scales with the number of dependencies instead of with the number of processes.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://developers.google.com/protocol-buffers/docs/encoding#packed">Protocol Buffers - Packed repeated fields</a></li>
+ * </ul>
+ * </p>
+ */
 public class MessagePassedVectorClock {
 
+    final private static int UNKNOWN_SIZE = -1;
+
     private int hostId;
     final private int[] clockArray;
-    final private int sizeInBytes;
+    private int sizeInBytes;
 
     public MessagePassedVectorClock(ProcessVectorClock processVectorClock, Set<Integer> dependencies) {
         hostId = processVectorClock.getHostId();
         clockArray = filteredCopyOfClockArray(processVectorClock, dependencies);
-        sizeInBytes = clockArray.length * Integer.BYTES;
+        sizeInBytes = UNKNOWN_SIZE;
     }
 
     private int[] filteredCopyOfClockArray(ProcessVectorClock processVectorClock, Set<Integer> hostDependencies) {
@@ -31,13 +45,16 @@ public class MessagePassedVectorClock {
     private MessagePassedVectorClock(int[] clockArray) {
         hostId = 0; // uninitialized, should be subsequently set
         this.clockArray = clockArray;
-        sizeInBytes = clockArray.length * Integer.BYTES;
+        sizeInBytes = UNKNOWN_SIZE;
     }
 
     public static MessagePassedVectorClock createFromBytes(int vectorClockSize, ByteBuffer buffer) {
         int[] clockArray = new int[vectorClockSize];
-        for (int entry = 0; entry < vectorClockSize; entry++) {
-            clockArray[entry] = buffer.getInt();
+        int numberOfEntries = VarInt.read(buffer);
+        int index = -1;
+        for (int entry = 0; entry < numberOfEntries; entry++) {
+            index += VarInt.read(buffer) + 1;
+            clockArray[index] = VarInt.read(buffer);
         }
         return new MessagePassedVectorClock(clockArray);
     }
@@ -56,18 +73,43 @@ public class MessagePassedVectorClock {
 
     public void setEntryForHost(int hostId, int value) {
         clockArray[hostId - 1] = value;
+        sizeInBytes = UNKNOWN_SIZE;
     }
 
     public int getSizeInBytes() {
+        if (sizeInBytes == UNKNOWN_SIZE) {
+            sizeInBytes = computeSizeInBytes();
+        }
         return sizeInBytes;
     }
 
-    public byte[] getBytes() {
-        ByteBuffer buffer = ByteBuffer.allocate(sizeInBytes);
+    private int computeSizeInBytes() {
+        int numberOfEntries = 0;
+        int size = 0;
+        int previousIndex = -1;
+        for (int index = 0; index < clockArray.length; index++) {
+            if (clockArray[index] == 0) continue;
+            numberOfEntries++;
+            size += VarInt.getSizeInBytes(index - previousIndex - 1) + VarInt.getSizeInBytes(clockArray[index]);
+            previousIndex = index;
+        }
+        return VarInt.getSizeInBytes(numberOfEntries) + size;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        int numberOfEntries = 0;
         for (int entry : clockArray) {
-            buffer.putInt(entry);
+            if (entry != 0) numberOfEntries++;
+        }
+
+        VarInt.write(buffer, numberOfEntries);
+        int previousIndex = -1;
+        for (int index = 0; index < clockArray.length; index++) {
+            if (clockArray[index] == 0) continue;
+            VarInt.write(buffer, index - previousIndex - 1);
+            VarInt.write(buffer, clockArray[index]);
+            previousIndex = index;
         }
-        return buffer.array();
     }
 
     public boolean isLessThanOrEqual(ProcessVectorClock other) {
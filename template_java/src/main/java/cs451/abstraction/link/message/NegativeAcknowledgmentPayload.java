@@ -0,0 +1,94 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Lists the ranges of link sequence numbers that the receiver detected as missing from a single host, so that
+ * the sender retransmits them right away instead of waiting for their retransmission timers. Each range is given by
+ * its first and last sequence number, both inclusive.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://tools.ietf.org/html/rfc5740">RFC 5740 - NACK-Oriented Reliable Multicast (NORM)</a></li>
+ * </ul>
+ * </p>
+ */
+public class NegativeAcknowledgmentPayload implements Payload {
+
+    // the number of ranges is encoded in a single byte
+    final private static int MAX_ENCODABLE_RANGES = Byte.MAX_VALUE;
+    final private static int HEADER_BYTE_SIZE = Byte.BYTES;
+    final private static int RANGE_BYTE_SIZE = 2 * Integer.BYTES;
+
+    // first and last sequence numbers of the ranges, interleaved
+    final private int[] missingRanges;
+
+    public NegativeAcknowledgmentPayload(int[] missingRanges) {
+        this.missingRanges = missingRanges;
+    }
+
+    /**
+     * @return maximum number of ranges of a negative acknowledgment fitting in a single record, as negative
+     * acknowledgments are never fragmented
+     */
+    public static int getMaxRanges(int maxRecordSize) {
+        int maxRangesFitting = (maxRecordSize - DatagramData.HEADER_BYTE_SIZE - HEADER_BYTE_SIZE) / RANGE_BYTE_SIZE;
+        return Math.max(0, Math.min(MAX_ENCODABLE_RANGES, maxRangesFitting));
+    }
+
+    public void forEachMissing(IntConsumer action) {
+        for (int range = 0; range < missingRanges.length; range += 2) {
+            for (int sequenceNumber = missingRanges[range]; sequenceNumber <= missingRanges[range + 1]; sequenceNumber++) {
+                action.accept(sequenceNumber);
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) (missingRanges.length / 2));
+        for (int sequenceNumber : missingRanges) {
+            buffer.putInt(sequenceNumber);
+        }
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return HEADER_BYTE_SIZE + missingRanges.length / 2 * RANGE_BYTE_SIZE;
+    }
+
+    @Override
+    public Payload getPayload() {
+        return null;
+    }
+
+    @Override
+    public int getOriginalSenderId() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public int getSequenceNumber() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NegativeAcknowledgmentPayload that = (NegativeAcknowledgmentPayload) o;
+        return Arrays.equals(missingRanges, that.missingRanges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(missingRanges);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(missingRanges);
+    }
+}
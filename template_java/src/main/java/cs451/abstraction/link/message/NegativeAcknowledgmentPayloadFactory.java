@@ -0,0 +1,16 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+public class NegativeAcknowledgmentPayloadFactory implements PayloadFactory {
+
+    @Override
+    public NegativeAcknowledgmentPayload create(ByteBuffer buffer) {
+        int numberOfRanges = Byte.toUnsignedInt(buffer.get());
+        int[] missingRanges = new int[2 * numberOfRanges];
+        for (int entry = 0; entry < missingRanges.length; entry++) {
+            missingRanges[entry] = buffer.getInt();
+        }
+        return new NegativeAcknowledgmentPayload(missingRanges);
+    }
+}
@@ -1,8 +1,20 @@
 package cs451.abstraction.link.message;
 
+import java.nio.ByteBuffer;
+
 public interface Payload {
 
-    byte[] getBytes();
+    /**
+     * Writes the encoding of this payload, including all the payloads it wraps, at the current position of the
+     * buffer, so that the whole chain is encoded in a single pass without intermediate arrays.
+     */
+    void writeTo(ByteBuffer buffer);
+
+    default byte[] getBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(getSizeInBytes());
+        writeTo(buffer);
+        return buffer.array();
+    }
 
     int getSizeInBytes();
 
@@ -11,4 +23,11 @@ public interface Payload {
     int getOriginalSenderId();
 
     int getSequenceNumber();
+
+    /**
+     * @return identifier of the broadcast message, packing its origin and its sequence number at the origin
+     */
+    default long getMessageId() {
+        return MessageId.of(getOriginalSenderId(), getSequenceNumber());
+    }
 }
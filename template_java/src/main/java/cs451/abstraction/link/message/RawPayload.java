@@ -1,19 +1,33 @@
 package cs451.abstraction.link.message;
 
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+/**
+ * <p>Application data of arbitrary size, encoded as its varint length followed by the bytes. Payloads which do not
+ * fit into a single datagram are fragmented by the {@link cs451.abstraction.link.Sender}.</p>
+ */
 public class RawPayload implements Payload {
 
-    final private int data = 0;
+    final private byte[] data;
+
+    public RawPayload(byte[] data) {
+        this.data = data;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
 
     @Override
-    public byte[] getBytes() {
-        return new byte[0];
+    public void writeTo(ByteBuffer buffer) {
+        VarInt.write(buffer, data.length);
+        buffer.put(data);
     }
 
     @Override
     public int getSizeInBytes() {
-        return 0;
+        return VarInt.getSizeInBytes(data.length) + data.length;
     }
 
     @Override
@@ -36,12 +50,12 @@ public class RawPayload implements Payload {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RawPayload that = (RawPayload) o;
-        return data == that.data;
+        return Arrays.equals(data, that.data);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(data);
+        return Arrays.hashCode(data);
     }
 
     @Override
@@ -4,8 +4,20 @@ import java.nio.ByteBuffer;
 
 public class RawPayloadFactory implements PayloadFactory {
 
+    final private static RawPayload EMPTY = new RawPayload(new byte[0]);
+
     @Override
     public Payload create(ByteBuffer buffer) {
-        return new RawPayload();
+        byte[] data = new byte[VarInt.read(buffer)];
+        buffer.get(data);
+        return data.length == 0 ? EMPTY : new RawPayload(data);
+    }
+
+    public RawPayload create(byte[] data) {
+        return new RawPayload(data);
+    }
+
+    public RawPayload createEmpty() {
+        return EMPTY;
     }
 }
@@ -0,0 +1,95 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * <p>Summarizes the broadcast messages of a single origin received and delivered by the sending host, each in the same
+ * form as a link acknowledgment: all the sequence numbers up to the cumulative one and those flagged in the selective
+ * bitmap. The received summary replaces the relay of the full payloads to every host as the evidence that the sending
+ * host has seen them, so the bytes spent on that evidence do not depend on the payload size. The delivered summary
+ * tells the receiving host which messages the sending host no longer needs any evidence for.</p>
+ *
+ * <p>Summaries are sent without link sequence numbers and never retransmitted, a newer one supersedes the older ones.
+ * A probe asks the receiving host to reply with its own summary of the same origin.</p>
+ */
+public class SeenPayload implements Payload {
+
+    final private int originalSenderId;
+    final private boolean isProbe;
+    final private AcknowledgmentPayload received;
+    final private AcknowledgmentPayload delivered;
+
+    public SeenPayload(int originalSenderId, boolean isProbe, AcknowledgmentPayload received,
+                       AcknowledgmentPayload delivered) {
+        this.originalSenderId = originalSenderId;
+        this.isProbe = isProbe;
+        this.received = received;
+        this.delivered = delivered;
+    }
+
+    public boolean isProbe() {
+        return isProbe;
+    }
+
+    public AcknowledgmentPayload getReceived() {
+        return received;
+    }
+
+    public AcknowledgmentPayload getDelivered() {
+        return delivered;
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(originalSenderId);
+        buffer.put((byte) (isProbe ? 1 : 0));
+        received.writeTo(buffer);
+        delivered.writeTo(buffer);
+    }
+
+    @Override
+    public int getSizeInBytes() {
+        return Integer.BYTES + Byte.BYTES + received.getSizeInBytes() + delivered.getSizeInBytes();
+    }
+
+    public static int getMaxSizeInBytes(int maxAcknowledgmentSize) {
+        return Integer.BYTES + Byte.BYTES + 2 * maxAcknowledgmentSize;
+    }
+
+    @Override
+    public Payload getPayload() {
+        return received;
+    }
+
+    @Override
+    public int getOriginalSenderId() {
+        return originalSenderId;
+    }
+
+    @Override
+    public int getSequenceNumber() {
+        throw new RuntimeException();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SeenPayload that = (SeenPayload) o;
+        return originalSenderId == that.originalSenderId &&
+                isProbe == that.isProbe &&
+                received.equals(that.received) &&
+                delivered.equals(that.delivered);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(originalSenderId, isProbe, received, delivered);
+    }
+
+    @Override
+    public String toString() {
+        return originalSenderId + (isProbe ? " probe " : " ") + received + " " + delivered;
+    }
+}
@@ -0,0 +1,21 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+public class SeenPayloadFactory implements PayloadFactory {
+
+    final private AcknowledgmentPayloadFactory acknowledgmentPayloadFactory;
+
+    public SeenPayloadFactory() {
+        this.acknowledgmentPayloadFactory = new AcknowledgmentPayloadFactory();
+    }
+
+    @Override
+    public SeenPayload create(ByteBuffer buffer) {
+        int originalSenderId = buffer.getInt();
+        boolean isProbe = buffer.get() != 0;
+        AcknowledgmentPayload received = acknowledgmentPayloadFactory.create(buffer);
+        AcknowledgmentPayload delivered = acknowledgmentPayloadFactory.create(buffer);
+        return new SeenPayload(originalSenderId, isProbe, received, delivered);
+    }
+}
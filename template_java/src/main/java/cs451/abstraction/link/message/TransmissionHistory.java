@@ -1,27 +1,56 @@
 package cs451.abstraction.link.message;
 
-import java.time.Instant;
+import cs451.abstraction.link.TimerWheel;
 
 public class TransmissionHistory {
 
-    private Instant sendTime;
+    final private Message message;
+    // once the history is stored as unacknowledged, guarded by the monitor of the unacknowledged messages of the peer
+    private long sendTimeNanos;
     private int retries;
+    private volatile boolean isStale;
+    private TimerWheel.Timer<Message> retransmissionTimer;
 
-    public TransmissionHistory() {
-        this.sendTime = Instant.now();
+    public TransmissionHistory(Message message) {
+        this.message = message;
+        this.sendTimeNanos = System.nanoTime();
         this.retries = -1;
+        this.isStale = false;
     }
 
-    public Instant getSendTime() {
-        return sendTime;
+    public Message getMessage() {
+        return message;
+    }
+
+    public long getSendTimeNanos() {
+        return sendTimeNanos;
     }
 
     public int getRetries() {
         return retries;
     }
 
+    /**
+     * Stale messages were retransmitted too many times and no longer count towards the send window.
+     */
+    public boolean isStale() {
+        return isStale;
+    }
+
+    public void markStale() {
+        isStale = true;
+    }
+
+    public TimerWheel.Timer<Message> getRetransmissionTimer() {
+        return retransmissionTimer;
+    }
+
+    public void setRetransmissionTimer(TimerWheel.Timer<Message> retransmissionTimer) {
+        this.retransmissionTimer = retransmissionTimer;
+    }
+
     public void markSending() {
-        sendTime = Instant.now();
+        sendTimeNanos = System.nanoTime();
         retries++;
     }
 }
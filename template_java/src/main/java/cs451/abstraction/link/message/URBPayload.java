@@ -31,11 +31,9 @@ public class URBPayload implements Payload {
     }
 
     @Override
-    public byte[] getBytes() {
-        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTE_SIZE + payload.getSizeInBytes());
+    public void writeTo(ByteBuffer buffer) {
         buffer.putInt(originalSenderId);
-        buffer.put(payload.getBytes());
-        return buffer.array();
+        payload.writeTo(buffer);
     }
 
     @Override
@@ -0,0 +1,52 @@
+package cs451.abstraction.link.message;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Variable-length encoding of non-negative integers, 7 bits per byte with the highest bit set on all the bytes
+ * but the last one, so that small values take a single byte.</p>
+ *
+ * <p>Used resources:
+ * <ul>
+ *     <li><a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">Protocol Buffers - Varints</a></li>
+ * </ul>
+ * </p>
+ */
+public class VarInt {
+
+    final private static int PAYLOAD_BITS = 7;
+    final private static int PAYLOAD_MASK = 0x7F;
+    final private static int CONTINUATION_BIT = 0x80;
+
+    private VarInt() {
+    }
+
+    public static void write(ByteBuffer buffer, int value) {
+        while ((value & ~PAYLOAD_MASK) != 0) {
+            buffer.put((byte) ((value & PAYLOAD_MASK) | CONTINUATION_BIT));
+            value >>>= PAYLOAD_BITS;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static int read(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte encoded;
+        do {
+            encoded = buffer.get();
+            value |= (encoded & PAYLOAD_MASK) << shift;
+            shift += PAYLOAD_BITS;
+        } while ((encoded & CONTINUATION_BIT) != 0);
+        return value;
+    }
+
+    public static int getSizeInBytes(int value) {
+        int size = 1;
+        while ((value & ~PAYLOAD_MASK) != 0) {
+            value >>>= PAYLOAD_BITS;
+            size++;
+        }
+        return size;
+    }
+}
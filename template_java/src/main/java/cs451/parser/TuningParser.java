@@ -0,0 +1,127 @@
+package cs451.parser;
+
+import cs451.abstraction.broadcast.BroadcastConfiguration;
+import cs451.abstraction.broadcast.QuorumMode;
+import cs451.abstraction.broadcast.RelayMode;
+import cs451.abstraction.link.CongestionControlAlgorithm;
+import cs451.abstraction.link.LinkConfiguration;
+import cs451.abstraction.link.TransportType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * <p>Reads the tunable parameters of the link and broadcast layers from system properties, e.g.
+ * {@code java -Dcs451.transport=DATAGRAM_SOCKET -jar da_proc.jar ...}, as the command line arguments are fixed by the
+ * {@link Parser}. Properties which are not set keep the defaults of {@link LinkConfiguration} and
+ * {@link BroadcastConfiguration}.</p>
+ *
+ * <p>Supported properties:
+ * <ul>
+ *     <li>{@code cs451.packing} - {@code true} or {@code false}</li>
+ *     <li>{@code cs451.maxDatagramSize} - bytes</li>
+ *     <li>{@code cs451.transport} - {@link TransportType}</li>
+ *     <li>{@code cs451.congestionControl} - {@link CongestionControlAlgorithm}</li>
+ *     <li>{@code cs451.pacing} - {@code true} or {@code false}</li>
+ *     <li>{@code cs451.pacingMaxBurst} - messages</li>
+ *     <li>{@code cs451.suspicionTimeoutMillis} - milliseconds</li>
+ *     <li>{@code cs451.relayMode} - {@link RelayMode}</li>
+ *     <li>{@code cs451.relayFanout} - hosts</li>
+ *     <li>{@code cs451.quorumMode} - {@link QuorumMode}</li>
+ *     <li>{@code cs451.workers} - threads</li>
+ * </ul>
+ * </p>
+ */
+public class TuningParser {
+
+    final private static String PREFIX = "cs451.";
+
+    final private Properties properties;
+
+    public TuningParser(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the property if any value is invalid
+     */
+    public void populate(LinkConfiguration linkConfiguration, BroadcastConfiguration broadcastConfiguration) {
+        String value;
+        if ((value = get("packing")) != null) {
+            linkConfiguration.setPackingEnabled(parseBoolean("packing", value));
+        }
+        if ((value = get("maxDatagramSize")) != null) {
+            try {
+                linkConfiguration.setMaxDatagramSize(parsePositiveInt("maxDatagramSize", value));
+            } catch (IllegalArgumentException exc) {
+                throw new IllegalArgumentException("Invalid " + PREFIX + "maxDatagramSize: " + exc.getMessage());
+            }
+        }
+        if ((value = get("transport")) != null) {
+            linkConfiguration.setTransportType(parseEnum("transport", value, TransportType.class));
+        }
+        if ((value = get("congestionControl")) != null) {
+            linkConfiguration.setCongestionControlAlgorithm(
+                    parseEnum("congestionControl", value, CongestionControlAlgorithm.class)
+            );
+        }
+        if ((value = get("pacing")) != null) {
+            linkConfiguration.setPacingEnabled(parseBoolean("pacing", value));
+        }
+        if ((value = get("pacingMaxBurst")) != null) {
+            linkConfiguration.setPacingMaxBurst(parsePositiveInt("pacingMaxBurst", value));
+        }
+        if ((value = get("suspicionTimeoutMillis")) != null) {
+            linkConfiguration.setSuspicionTimeout(
+                    Duration.ofMillis(parsePositiveInt("suspicionTimeoutMillis", value))
+            );
+        }
+
+        if ((value = get("relayMode")) != null) {
+            broadcastConfiguration.setRelayMode(parseEnum("relayMode", value, RelayMode.class));
+        }
+        if ((value = get("relayFanout")) != null) {
+            broadcastConfiguration.setRelayFanout(parsePositiveInt("relayFanout", value));
+        }
+        if ((value = get("quorumMode")) != null) {
+            broadcastConfiguration.setQuorumMode(parseEnum("quorumMode", value, QuorumMode.class));
+        }
+        if ((value = get("workers")) != null) {
+            broadcastConfiguration.setWorkers(parsePositiveInt("workers", value));
+        }
+    }
+
+    private String get(String name) {
+        String value = properties.getProperty(PREFIX + name);
+        return value == null ? null : value.trim();
+    }
+
+    private static boolean parseBoolean(String name, String value) {
+        if (value.equalsIgnoreCase("true")) return true;
+        if (value.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("Invalid " + PREFIX + name + ": expected true or false, got " + value);
+    }
+
+    private static int parsePositiveInt(String name, String value) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException exc) {
+            throw new IllegalArgumentException("Invalid " + PREFIX + name + ": expected a number, got " + value);
+        }
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Invalid " + PREFIX + name + ": expected a positive number, got " + value);
+        }
+        return parsed;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(String name, String value, Class<E> type) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException exc) {
+            throw new IllegalArgumentException("Invalid " + PREFIX + name + ": expected one of "
+                    + Arrays.toString(type.getEnumConstants()) + ", got " + value);
+        }
+    }
+}